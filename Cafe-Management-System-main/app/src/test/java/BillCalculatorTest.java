@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BillCalculatorTest {
+    @Test
+    void roundsGstHalfUpOncePerBill() {
+        BillCalculator fivePercent = new BillCalculator(500);
+        assertEquals(51, fivePercent.gst(1010));
+        assertEquals(50, fivePercent.gst(1009));
+        assertEquals(-51, fivePercent.gst(-1010));
+        assertEquals(0, fivePercent.gst(0));
+        assertEquals(42, new BillCalculator(1250).gst(333));
+        assertEquals(0, new BillCalculator(0).gst(99_999));
+    }
+
+    @Test
+    void totalsOrdersWithDiscount() {
+        Order order = new Order("Table", "4", 250, List.of(
+                new OrderLine(1, "Coffee", 3, 1999),
+                new OrderLine(2, "Muffin", 1, 1250)));
+        BillCalculator calc = new BillCalculator(500);
+        long gst = calc.gst(order.getSubtotalMinor());
+        assertEquals(7247, order.getSubtotalMinor());
+        assertEquals(362, gst);
+        assertEquals(7247 + 362 - 250, calc.total(order, gst));
+    }
+
+    @Test
+    void convertsStoredRatesToBasisPoints() {
+        assertEquals(500, BillCalculator.forRate(0.05).getGstBasisPoints());
+        assertEquals(1250, BillCalculator.forRate(0.125).getGstBasisPoints());
+        assertEquals(1800, BillCalculator.forRate(0.18).getGstBasisPoints());
+        assertEquals(0.125, new BillCalculator(1250).getGstRate());
+        assertThrows(IllegalArgumentException.class, () -> new BillCalculator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new BillCalculator(10_001));
+    }
+
+    @Test
+    void labelsTheRateWithoutTrailingZeros() {
+        assertEquals("5%", label(500));
+        assertEquals("12.5%", label(1250));
+        assertEquals("12.05%", label(1205));
+        assertEquals("0.25%", label(25));
+        assertEquals("18%", label(1800));
+    }
+
+    @Test
+    void refusesToOverflow() {
+        assertThrows(ArithmeticException.class, () -> new BillCalculator(500).gst(Long.MAX_VALUE / 100));
+    }
+
+    private static String label(int basisPoints) {
+        return new BillCalculator(basisPoints).appendGstLabel(new StringBuilder()).toString();
+    }
+}
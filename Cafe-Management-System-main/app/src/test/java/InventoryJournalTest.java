@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InventoryJournalTest {
+    private static final int CAPACITY = 64 * 32;
+    // Long enough that the background flusher never runs during a test
+    private static final long NO_FLUSH = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysUnflushedEntriesAfterACrash() throws Exception {
+        Path crashed = journalWithUnflushedEntries("journal_crash_source");
+        try (ConnectionPool pool = TestDatabase.migrated("journal_crash", "Coffee", "Tea", "Muffin");
+             Connection conn = pool.getConnection()) {
+            InventoryJournal journal = new InventoryJournal(crashed, CAPACITY, pool, 100);
+            assertEquals(3, journal.recover(conn, NO_FLUSH));
+            assertEquals(0, journal.getPendingCount());
+            journal.close();
+            assertEquals(List.of("1:-2:Sale:7", "2:-1:Sale:7", "3:5:Restock:null"), transactions(conn));
+            assertEquals(3, checkpoint(conn));
+
+            // Everything is in the database now, so a restart replays nothing
+            InventoryJournal reopened = new InventoryJournal(crashed, CAPACITY, pool, 100);
+            assertEquals(0, reopened.recover(conn, NO_FLUSH));
+            reopened.close();
+            assertEquals(3, transactions(conn).size());
+        }
+    }
+
+    @Test
+    void stopsAtATornRecord() throws Exception {
+        Path crashed = journalWithUnflushedEntries("journal_torn_source");
+        // A crash part-way through writing the third record: its checksum no longer matches
+        try (FileChannel channel = FileChannel.open(crashed, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 64 + 2 * 64 + 20);
+        }
+        try (ConnectionPool pool = TestDatabase.migrated("journal_torn", "Coffee", "Tea", "Muffin");
+             Connection conn = pool.getConnection()) {
+            InventoryJournal journal = new InventoryJournal(crashed, CAPACITY, pool, 100);
+            assertEquals(2, journal.recover(conn, NO_FLUSH));
+            journal.close();
+            assertEquals(List.of("1:-2:Sale:7", "2:-1:Sale:7"), transactions(conn));
+        }
+    }
+
+    @Test
+    void skipsEntriesAtOrBelowTheCheckpoint() throws Exception {
+        Path crashed = journalWithUnflushedEntries("journal_checkpoint_source");
+        try (ConnectionPool pool = TestDatabase.migrated("journal_checkpoint", "Coffee", "Tea", "Muffin");
+             Connection conn = pool.getConnection()) {
+            // The first entry was flushed before the crash; its checkpoint committed with it
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE inventory_journal_checkpoint SET flushed_seq = 1 WHERE id = 1");
+            }
+            InventoryJournal journal = new InventoryJournal(crashed, CAPACITY, pool, 1);
+            assertEquals(2, journal.recover(conn, NO_FLUSH));
+            journal.close();
+            assertEquals(List.of("2:-1:Sale:7", "3:5:Restock:null"), transactions(conn));
+            assertEquals(3, checkpoint(conn));
+        }
+    }
+
+    // Append three entries and copy the file before any reach the database, as a crash would leave it
+    private Path journalWithUnflushedEntries(String database) throws SQLException, IOException {
+        Path live = dir.resolve(database + ".journal");
+        Path copy = dir.resolve(database + ".crashed");
+        try (ConnectionPool pool = TestDatabase.migrated(database, "Coffee", "Tea", "Muffin");
+             Connection conn = pool.getConnection()) {
+            InventoryJournal journal = new InventoryJournal(live, CAPACITY, pool, 100);
+            journal.recover(conn, NO_FLUSH);
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            journal.appendAll(new int[]{1, 2}, new int[]{-2, -1}, "Sale", now, 7);
+            journal.append(3, 5, "Restock", now, null);
+            assertEquals(3, journal.getPendingCount());
+            Files.copy(live, copy);
+            journal.close();
+        }
+        return copy;
+    }
+
+    private static List<String> transactions(Connection conn) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT item_id, quantity, transaction_type, user_id FROM inventory_transactions ORDER BY id")) {
+            while (rs.next()) {
+                rows.add(rs.getInt(1) + ":" + rs.getInt(2) + ":" + rs.getString(3) + ":" + rs.getObject(4));
+            }
+        }
+        return rows;
+    }
+
+    private static long checkpoint(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT flushed_seq FROM inventory_journal_checkpoint WHERE id = 1")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemAnalyticsTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void countsPairsOncePerOrderAndComputesLift() {
+        // Items 10, 20, 30, 40 are dense 0..3; the second order lists item 10 twice
+        OrderItemColumns columns = columns(new int[]{10, 20, 30, 40},
+                new int[]{0, 1}, new int[]{0, 1, 0}, new int[]{0, 2}, new int[]{1}, new int[]{2, 3}, new int[]{0, 1, 2});
+        ItemAnalytics.Result result = analytics().compute(columns, ItemAnalyticsTest::menuItem, 10, System.nanoTime());
+
+        assertEquals(6, result.getOrderCount());
+        Map<Integer, ItemAnalytics.ItemStat> items = new HashMap<>();
+        for (ItemAnalytics.ItemStat item : result.getItems()) {
+            items.put(item.getItemId(), item);
+        }
+        assertEquals(4, items.get(10).getOrders());
+        assertEquals(5, items.get(10).getUnits());
+        assertEquals(4, items.get(20).getOrders());
+        assertEquals(3, items.get(30).getOrders());
+        assertEquals(1, items.get(40).getOrders());
+
+        // 10+30 and 30+40 are each in a single order, which is below the cut-off
+        List<ItemAnalytics.PairStat> pairs = result.getPairs();
+        assertEquals(2, pairs.size());
+        assertPair(pairs.get(0), 10, 20, 3, 3.0 * 6 / (4 * 4));
+        assertPair(pairs.get(1), 10, 30, 2, 2.0 * 6 / (4 * 3));
+    }
+
+    @Test
+    void parallelCountsMatchASerialCount() {
+        // Enough orders that the pair pass splits into many leaves across the workers
+        int items = 30;
+        int orders = 40_000;
+        int[] itemIds = new int[items];
+        for (int i = 0; i < items; i++) {
+            itemIds[i] = 100 + i;
+        }
+        Random random = new Random(7);
+        int[][] baskets = new int[orders][];
+        for (int o = 0; o < orders; o++) {
+            baskets[o] = new int[1 + random.nextInt(5)];
+            for (int l = 0; l < baskets[o].length; l++) {
+                // Skewed so pair counts differ
+                baskets[o][l] = Math.min(random.nextInt(items), random.nextInt(items));
+            }
+        }
+        int[][] together = new int[items][items];
+        int[] ordersWith = new int[items];
+        for (int[] basket : baskets) {
+            boolean[] seen = new boolean[items];
+            for (int item : basket) {
+                if (!seen[item]) {
+                    seen[item] = true;
+                    ordersWith[item]++;
+                }
+            }
+            for (int a = 0; a < items; a++) {
+                for (int b = a + 1; b < items; b++) {
+                    if (seen[a] && seen[b]) {
+                        together[a][b]++;
+                    }
+                }
+            }
+        }
+
+        OrderItemColumns columns = columns(itemIds, baskets);
+        int allPairs = items * (items - 1) / 2;
+        ItemAnalytics.Result result = analytics().compute(columns, ItemAnalyticsTest::menuItem, allPairs, System.nanoTime());
+        assertEquals(allPairs, result.getPairs().size());
+        for (ItemAnalytics.PairStat pair : result.getPairs()) {
+            int a = Math.min(pair.getFirst().getItemId(), pair.getSecond().getItemId()) - 100;
+            int b = Math.max(pair.getFirst().getItemId(), pair.getSecond().getItemId()) - 100;
+            assertEquals(together[a][b], pair.getOrders(), "pair " + a + "+" + b);
+            assertEquals((double) together[a][b] * orders / ((double) ordersWith[a] * ordersWith[b]), pair.getLift(), 1e-9);
+        }
+        for (int i = 1; i < result.getPairs().size(); i++) {
+            assertTrue(result.getPairs().get(i - 1).getOrders() >= result.getPairs().get(i).getOrders());
+        }
+    }
+
+    private ItemAnalytics analytics() {
+        return new ItemAnalytics(new MenuCatalog(), pool);
+    }
+
+    // One line of quantity 1 per entry, priced at 100 paise
+    private static OrderItemColumns columns(int[] itemIds, int[]... baskets) {
+        int lines = 0;
+        for (int[] basket : baskets) {
+            lines += basket.length;
+        }
+        int[] orderStart = new int[baskets.length + 1];
+        int[] item = new int[lines];
+        int[] quantity = new int[lines];
+        long[] revenue = new long[lines];
+        int line = 0;
+        for (int o = 0; o < baskets.length; o++) {
+            orderStart[o] = line;
+            for (int dense : baskets[o]) {
+                item[line] = dense;
+                quantity[line] = 1;
+                revenue[line] = 100;
+                line++;
+            }
+        }
+        orderStart[baskets.length] = line;
+        return new OrderItemColumns(orderStart, item, quantity, revenue, itemIds);
+    }
+
+    private static MenuItem menuItem(int itemId) {
+        return new MenuItem(itemId, "Item " + itemId, "Test", 1, true, 0);
+    }
+
+    private static void assertPair(ItemAnalytics.PairStat pair, int firstId, int secondId, int orders, double lift) {
+        int lo = Math.min(pair.getFirst().getItemId(), pair.getSecond().getItemId());
+        int hi = Math.max(pair.getFirst().getItemId(), pair.getSecond().getItemId());
+        assertEquals(firstId, lo);
+        assertEquals(secondId, hi);
+        assertEquals(orders, pair.getOrders());
+        assertEquals(lift, pair.getLift(), 1e-9);
+    }
+}
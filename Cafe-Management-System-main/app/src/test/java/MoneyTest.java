@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    @Test
+    void parsesWholeAndFractionalAmounts() {
+        assertEquals(1200, Money.parse("12"));
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(1205, Money.parse("12.05"));
+        assertEquals(-325, Money.parse(" -3.25 "));
+        assertEquals(7, Money.parse("+0.07"));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(1200, Money.parse("12."));
+    }
+
+    @Test
+    void rejectsMalformedAmountsInsteadOfRounding() {
+        for (String text : new String[]{"", " ", "-", ".", "1.234", "1.2.3", "12a", "1,5", "99999999999999999999"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(text), text);
+        }
+    }
+
+    @Test
+    void readsDecimalColumnsHalfUp() {
+        assertEquals(101, Money.ofDecimal(new BigDecimal("1.005")));
+        assertEquals(100, Money.ofDecimal(new BigDecimal("1.004")));
+        assertEquals(-101, Money.ofDecimal(new BigDecimal("-1.005")));
+        assertEquals(0, Money.ofDecimal(null));
+        assertEquals(new BigDecimal("-0.05"), Money.toDecimal(-5));
+        assertEquals(123456, Money.ofDecimal(Money.toDecimal(123456)));
+    }
+
+    @Test
+    void readsMenuPricesToTheNearestPaisa() {
+        assertEquals(30, Money.ofDouble(0.1 + 0.2));
+        assertEquals(1999, Money.ofDouble(19.99));
+    }
+
+    @Test
+    void formatsWithExactlyTwoDecimals() {
+        assertEquals("12.05", Money.format(1205));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-12.50", Money.format(-1250));
+        assertEquals("Rs.3.00", Money.append(new StringBuilder("Rs."), 300).toString());
+    }
+}
@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderArchiveTest {
+    private static final LocalDate DAY_ONE = LocalDate.of(2026, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void answersLikeTheLiveTablesAcrossAnIncrementalExport() throws Exception {
+        SalesRollup rollup = new SalesRollup();
+        try (ConnectionPool pool = TestDatabase.migrated("archive_round_trip", "Coffee", "Muffin", "Tea", "Cake");
+             Connection conn = pool.getConnection()) {
+            Random random = new Random(42);
+            for (int day = 0; day < 8; day++) {
+                // Day 2 has no orders, so the archive has to carry an empty day
+                int orders = day == 2 ? 0 : 5 + day;
+                for (int k = 0; k < orders; k++) {
+                    LocalDateTime at = DAY_ONE.plusDays(day).atTime(8 + k, 7 * k % 60, k);
+                    placeOrder(conn, rollup, at, random);
+                }
+            }
+
+            OrderArchive archive = OrderArchive.open(dir);
+            assertNull(archive.current());
+            OrderArchive.Snapshot first = archive.update(conn, DAY_ONE.plusDays(4));
+            assertEquals(DAY_ONE, first.getFirstDay());
+            assertEquals(DAY_ONE.plusDays(4), first.getEndDay());
+            assertMatchesDatabase(conn, rollup, first, DAY_ONE, DAY_ONE.plusDays(4));
+
+            // Names are kept as they were when archived
+            new MenuRepository().update(conn, 1, "Espresso", "Drinks", 10, true);
+
+            // The second export copies the first file and appends only the new days
+            OrderArchive.Snapshot second = archive.update(conn, DAY_ONE.plusDays(7));
+            assertEquals(DAY_ONE.plusDays(7), second.getEndDay());
+            assertSame(second, archive.update(conn, DAY_ONE.plusDays(7)));
+            assertEquals(List.of("orders-20260308.archive"), archiveFiles());
+
+            OrderArchive.Snapshot reopened = OrderArchive.open(dir).current();
+            assertEquals(second.getOrderCount(), reopened.getOrderCount());
+            assertEquals(second.getLineCount(), reopened.getLineCount());
+            assertEquals("Coffee", reopened.getItem(1).getName());
+            assertMatchesDatabase(conn, rollup, reopened, DAY_ONE, DAY_ONE.plusDays(7));
+            // A range that straddles the boundary between the two exports
+            assertMatchesDatabase(conn, rollup, reopened, DAY_ONE.plusDays(3), DAY_ONE.plusDays(6));
+            assertMatchesDatabase(conn, rollup, reopened, DAY_ONE.plusDays(2), DAY_ONE.plusDays(3));
+            // Ranges reaching past the archive are cut at its end
+            assertEquals(days(rollup.readDays(conn, DAY_ONE.minusDays(3), DAY_ONE.plusDays(7))),
+                    days(reopened.readDays(DAY_ONE.minusDays(3), DAY_ONE.plusDays(30))));
+        }
+    }
+
+    private static void placeOrder(Connection conn, SalesRollup rollup, LocalDateTime at, Random random) throws SQLException {
+        List<OrderLine> lines = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            int itemId = 1 + random.nextInt(4);
+            // Unit prices that differ from the menu, so the archive must keep what was charged
+            lines.add(new OrderLine(itemId, "Item " + itemId, 1 + random.nextInt(3), 1000 + 250L * itemId + random.nextInt(99)));
+        }
+        Order order = new Order("Table", "1", random.nextInt(3) * 100, lines);
+        long gst = BillCalculator.DEFAULT.gst(order.getSubtotalMinor());
+        long total = BillCalculator.DEFAULT.total(order, gst);
+        OrderRepository orders = new OrderRepository();
+        int orderId = orders.insert(conn, order, gst, total, Timestamp.valueOf(at), null);
+        orders.insertItems(conn, orderId, order);
+        rollup.recordOrder(conn, at.toLocalDate(), order, gst, total);
+    }
+
+    private static void assertMatchesDatabase(Connection conn, SalesRollup rollup, OrderArchive.Snapshot archive,
+                                              LocalDate from, LocalDate toExclusive) throws SQLException {
+        assertEquals(days(rollup.readDays(conn, from, toExclusive)), days(archive.readDays(from, toExclusive)));
+        assertEquals(items(rollup.readItems(conn, from, toExclusive)), items(archive.readItems(from, toExclusive)));
+        assertEquals(lines(OrderItemColumns.load(conn, from, toExclusive)), lines(archive.columns(from, toExclusive)));
+    }
+
+    private static List<String> days(List<SalesRollup.DaySummary> days) {
+        return days.stream().map(d -> d.getDay() + " " + d.getOrderCount() + " " + d.getSubtotalMinor() + " " + d.getGstMinor()
+                + " " + d.getDiscountMinor() + " " + d.getTotalMinor()).collect(Collectors.toList());
+    }
+
+    // Quantity per item; ties may come back in either order, so compared as a map
+    private static TreeMap<Integer, Integer> items(List<SalesRollup.ItemTotal> items) {
+        TreeMap<Integer, Integer> byId = new TreeMap<>();
+        for (SalesRollup.ItemTotal item : items) {
+            byId.put(item.getItemId(), item.getQuantity());
+        }
+        return byId;
+    }
+
+    // Each order's lines by menu id, so different dense numbering still compares equal; neither query
+    // orders the lines within an order, so they are sorted
+    private static List<List<String>> lines(OrderItemColumns columns) {
+        List<List<String>> orders = new ArrayList<>();
+        for (int b = 0; b + 1 < columns.orderStart.length; b++) {
+            List<String> order = new ArrayList<>();
+            for (int i = columns.orderStart[b]; i < columns.orderStart[b + 1]; i++) {
+                order.add(columns.itemIds[columns.item[i]] + "x" + columns.quantity[i] + "=" + columns.revenueMinor[i]);
+            }
+            order.sort(null);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private List<String> archiveFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
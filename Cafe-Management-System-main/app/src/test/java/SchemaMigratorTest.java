@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+    @Test
+    void migratesAFreshDatabaseOnce() throws SQLException {
+        try (ConnectionPool pool = TestDatabase.empty("migrate_fresh");
+             Connection conn = pool.getConnection()) {
+            CafeSchema.migrate(conn, new SalesRollup());
+            SchemaMigrator migrator = new SchemaMigrator();
+            assertEquals(10, migrator.currentVersion(conn));
+            assertTrue(SchemaMigrator.columnExists(conn, "order_items", "unit_price"));
+            assertTrue(SchemaMigrator.columnExists(conn, "menu_items", "reorder_point"));
+            assertTrue(SchemaMigrator.tableExists(conn, "inventory_journal_checkpoint"));
+
+            CafeSchema.migrate(conn, new SalesRollup());
+            assertEquals(10, count(conn, "SELECT COUNT(*) FROM schema_version"));
+            assertEquals(1, count(conn, "SELECT COUNT(*) FROM users"));
+            assertEquals(1, count(conn, "SELECT COUNT(*) FROM settings"));
+        }
+    }
+
+    @Test
+    void rerunsStepsWhoseVersionWasNeverRecorded() throws SQLException {
+        try (ConnectionPool pool = TestDatabase.empty("migrate_rerun");
+             Connection conn = pool.getConnection()) {
+            CafeSchema.migrate(conn, new SalesRollup());
+            // As if the process died after the DDL of version 6 onward but before recording it
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM schema_version WHERE version >= 6");
+            }
+            CafeSchema.migrate(conn, new SalesRollup());
+            assertEquals(10, new SchemaMigrator().currentVersion(conn));
+            assertFalse(PasswordHasher.needsRehash(password(conn, "admin")));
+            assertTrue(PasswordHasher.verify("admin123", password(conn, "admin")));
+        }
+    }
+
+    @Test
+    void leavesAFailedStepPendingAndRetriesIt() throws SQLException {
+        try (ConnectionPool pool = TestDatabase.empty("migrate_failed");
+             Connection conn = pool.getConnection()) {
+            boolean[] fail = {true};
+            SchemaMigrator migrator = new SchemaMigrator()
+                    .add(1, "Table", c -> {
+                        try (Statement stmt = c.createStatement()) {
+                            stmt.execute("CREATE TABLE IF NOT EXISTS t (id INT PRIMARY KEY)");
+                        }
+                    })
+                    .add(2, "Two columns", c -> {
+                        SchemaMigrator.addColumn(c, "t", "a", "INT");
+                        if (fail[0]) {
+                            throw new SQLException("interrupted");
+                        }
+                        SchemaMigrator.addColumn(c, "t", "b", "INT");
+                    });
+            assertThrows(SQLException.class, () -> migrator.migrate(conn));
+            assertEquals(1, migrator.currentVersion(conn));
+            assertTrue(SchemaMigrator.columnExists(conn, "t", "a"));
+
+            fail[0] = false;
+            assertEquals(1, migrator.migrate(conn));
+            assertEquals(2, migrator.currentVersion(conn));
+            assertTrue(SchemaMigrator.columnExists(conn, "t", "b"));
+            assertEquals(0, migrator.migrate(conn));
+        }
+    }
+
+    @Test
+    void rejectsVersionsOutOfOrder() {
+        SchemaMigrator migrator = new SchemaMigrator().add(2, "Two", c -> { });
+        assertThrows(IllegalArgumentException.class, () -> migrator.add(2, "Again", c -> { }));
+        assertThrows(IllegalArgumentException.class, () -> migrator.add(1, "Earlier", c -> { }));
+        assertEquals(2, migrator.latestVersion());
+    }
+
+    private static long count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String password(Connection conn, String username) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT password FROM users WHERE username = '" + username + "'")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
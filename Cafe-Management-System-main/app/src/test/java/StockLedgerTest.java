@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockLedgerTest {
+    // Menu items start with 100 units
+    private static final int INITIAL_STOCK = 100;
+
+    @Test
+    void holdsShareTheStockAndGiveItBackOnRelease() throws SQLException {
+        try (ConnectionPool pool = TestDatabase.migrated("ledger_holds", "Coffee");
+             Connection conn = pool.getConnection();
+             StockLedger ledger = new StockLedger(new MenuCatalog(), 3_600_000)) {
+            setStock(conn, 1, 5);
+            StockLedger.Hold first = ledger.openHold();
+            StockLedger.Hold second = ledger.openHold();
+            ledger.reserve(conn, first, 1, 3);
+
+            InsufficientStockException e = assertThrows(InsufficientStockException.class, () -> ledger.reserve(conn, second, 1, 3));
+            assertTrue(e.getMessage().contains("2 units available"), e.getMessage());
+            assertEquals(0, second.reserved(1));
+
+            ledger.reserve(conn, second, 1, 2);
+            assertEquals(5, ledger.reservedQuantity(1));
+            assertEquals(2, ledger.getOpenHoldCount());
+
+            ledger.release(first);
+            assertEquals(2, ledger.reservedQuantity(1));
+            assertEquals(0, first.reserved(1));
+            assertEquals(1, ledger.getOpenHoldCount());
+            ledger.reserve(conn, second, 1, 3);
+            assertEquals(5, second.reserved(1));
+
+            assertThrows(IllegalArgumentException.class, () -> ledger.reserve(conn, first, 1, 0));
+        }
+    }
+
+    @Test
+    void reserveOrderOnlyTopsUpWhatTheHoldIsMissing() throws SQLException {
+        try (ConnectionPool pool = TestDatabase.migrated("ledger_top_up", "Coffee", "Tea");
+             Connection conn = pool.getConnection();
+             StockLedger ledger = new StockLedger(new MenuCatalog(), 3_600_000)) {
+            StockLedger.Hold hold = ledger.openHold();
+            ledger.reserve(conn, hold, 1, 2);
+            Order order = new Order("Takeaway", "N/A", 0, List.of(
+                    new OrderLine(1, "Coffee", 3, 1000),
+                    new OrderLine(2, "Tea", 1, 500)));
+            ledger.reserveOrder(conn, hold, order);
+            assertEquals(3, hold.reserved(1));
+            assertEquals(1, hold.reserved(2));
+            assertEquals(3, ledger.reservedQuantity(1));
+
+            // Already covered: nothing more is reserved
+            ledger.reserveOrder(conn, hold, order);
+            assertEquals(3, ledger.reservedQuantity(1));
+        }
+    }
+
+    @Test
+    void committedOrdersMoveUnitsFromHeldToSold() throws SQLException {
+        MenuCatalog catalog = new MenuCatalog();
+        try (ConnectionPool pool = TestDatabase.migrated("ledger_settle", "Coffee");
+             Connection conn = pool.getConnection();
+             StockLedger ledger = new StockLedger(catalog, 3_600_000)) {
+            setStock(conn, 1, 5);
+            BillingService billing = new BillingService(catalog, new SalesRollup(), ledger, null, new SettingsService(), null);
+            StockLedger.Hold hold = ledger.openHold();
+            OrderLine line = billing.priceLine(conn, hold, 1, 3);
+            billing.placeOrder(conn, new Order("Takeaway", "N/A", 0, List.of(line)), hold, null);
+
+            assertEquals(0, ledger.reservedQuantity(1));
+            assertEquals(0, ledger.getOpenHoldCount());
+            assertEquals(2, catalog.snapshot(conn).get(1).getStockQuantity());
+            StockLedger.Hold next = ledger.openHold();
+            assertThrows(InsufficientStockException.class, () -> ledger.reserve(conn, next, 1, 3));
+            ledger.reserve(conn, next, 1, 2);
+        }
+    }
+
+    @Test
+    void concurrentHoldsNeverOversell() throws Exception {
+        int tills = 16;
+        int attemptsPerTill = 20;
+        MenuCatalog catalog = new MenuCatalog();
+        try (ConnectionPool pool = TestDatabase.migrated("ledger_concurrent", "Coffee");
+             StockLedger ledger = new StockLedger(catalog, 3_600_000)) {
+            try (Connection conn = pool.getConnection()) {
+                setStock(conn, 1, 50);
+                catalog.snapshot(conn);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(tills);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < tills; t++) {
+                results.add(executor.submit(() -> {
+                    StockLedger.Hold hold = ledger.openHold();
+                    int won = 0;
+                    start.await();
+                    for (int i = 0; i < attemptsPerTill; i++) {
+                        try {
+                            // The catalog is current, so reserving needs no connection
+                            ledger.reserve(null, hold, 1, 1);
+                            won++;
+                        } catch (InsufficientStockException e) {
+                            // Sold out
+                        }
+                    }
+                    assertEquals(won, hold.reserved(1));
+                    return won;
+                }));
+            }
+            start.countDown();
+            int reserved = 0;
+            for (Future<Integer> result : results) {
+                reserved += result.get();
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(50, reserved);
+            assertEquals(50, ledger.reservedQuantity(1));
+        }
+    }
+
+    private static void setStock(Connection conn, int itemId, int stock) throws SQLException {
+        new MenuRepository().adjustStock(conn, itemId, stock - INITIAL_STOCK);
+    }
+}
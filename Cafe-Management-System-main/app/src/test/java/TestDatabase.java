@@ -0,0 +1,26 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// In-memory H2 databases in MySQL mode for tests; each name is a separate database for the life of the JVM
+final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    // An empty database, without any schema
+    static ConnectionPool empty(String name) {
+        return new ConnectionPool(EmbeddedBackend.url("mem:" + name + ";DB_CLOSE_DELAY=-1"), "sa", "", 2, 5000, 60_000, 1000);
+    }
+
+    // A database migrated to the current schema, with the given menu items (ids 1, 2, ... in order)
+    static ConnectionPool migrated(String name, String... items) throws SQLException {
+        ConnectionPool pool = empty(name);
+        try (Connection conn = pool.getConnection()) {
+            CafeSchema.migrate(conn, new SalesRollup());
+            MenuRepository menu = new MenuRepository();
+            for (String item : items) {
+                menu.insert(conn, item, "Test", 10, true);
+            }
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,51 @@
+import cafe.benchmarks.Workload;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+// Full bill transaction: stock decrements, order and item rows, inventory log and sales rollup,
+// on a connection borrowed from the pool per bill as the till does
+public class BillCommitWorkload implements Workload {
+    private final ConnectionPool pool;
+    private final StockLedger stockLedger;
+    private final BillingService billingService;
+    private final Order order;
+
+    public BillCommitWorkload(int lineCount) throws Exception {
+        this(lineCount, ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    public BillCommitWorkload(int lineCount, int statementCacheSize) throws Exception {
+        pool = EmbeddedDatabase.openPool(statementCacheSize);
+        MenuCatalog catalog = new MenuCatalog();
+        stockLedger = new StockLedger(catalog, 60_000);
+        billingService = new BillingService(catalog, new SalesRollup(), stockLedger, null, new SettingsService(),
+                new OrderEventStream(4096));
+        int[] itemIds;
+        MenuCatalog.Snapshot menu;
+        try (Connection conn = pool.getConnection()) {
+            itemIds = EmbeddedDatabase.seedMenu(conn, lineCount);
+            menu = catalog.snapshot(conn);
+        }
+        List<OrderLine> lines = new ArrayList<>();
+        for (int itemId : itemIds) {
+            MenuItem item = menu.get(itemId);
+            lines.add(new OrderLine(itemId, item.getName(), 1, Money.ofDouble(item.getPrice())));
+        }
+        order = new Order("Takeaway", "N/A", 0, lines);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        try (Connection conn = pool.getConnection()) {
+            return billingService.placeOrder(conn, order, null).getOrderId();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        stockLedger.close();
+        pool.close();
+    }
+}
@@ -0,0 +1,60 @@
+import cafe.benchmarks.Workload;
+
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+
+// CSV export of raw orders, three lines each, read back from the embedded database
+public class CsvExportWorkload implements Workload {
+    private static final int ORDERS_PER_DAY = 20;
+
+    private final Connection conn;
+    private final LocalDate from = LocalDate.of(2024, 1, 1);
+    private final LocalDate toExclusive;
+    private final ReportExporter exporter = new ReportExporter();
+
+    public CsvExportWorkload(int dayCount) throws SQLException {
+        conn = EmbeddedDatabase.open();
+        toExclusive = from.plusDays(dayCount);
+        int[] itemIds = EmbeddedDatabase.seedMenu(conn, 12);
+        conn.setAutoCommit(false);
+        PreparedStatement orderPs = conn.prepareStatement("INSERT INTO orders (order_type, table_number, subtotal, gst, discount, total, order_date) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+        PreparedStatement itemPs = conn.prepareStatement("INSERT INTO order_items (order_id, item_id, quantity) VALUES (?, ?, ?)");
+        for (int day = 0; day < dayCount; day++) {
+            for (int n = 0; n < ORDERS_PER_DAY; n++) {
+                orderPs.setString(1, n % 3 == 0 ? "Takeaway" : "Table");
+                orderPs.setString(2, n % 3 == 0 ? "N/A" : Integer.toString(1 + n % 12));
+                orderPs.setBigDecimal(3, BigDecimal.valueOf(45_000, 2));
+                orderPs.setBigDecimal(4, BigDecimal.valueOf(2_250, 2));
+                orderPs.setBigDecimal(5, BigDecimal.ZERO);
+                orderPs.setBigDecimal(6, BigDecimal.valueOf(47_250, 2));
+                orderPs.setTimestamp(7, Timestamp.valueOf(from.plusDays(day).atTime(9 + n % 12, n)));
+                orderPs.executeUpdate();
+                ResultSet keys = orderPs.getGeneratedKeys();
+                keys.next();
+                int orderId = keys.getInt(1);
+                for (int line = 0; line < 3; line++) {
+                    itemPs.setInt(1, orderId);
+                    itemPs.setInt(2, itemIds[(n + line) % itemIds.length]);
+                    itemPs.setInt(3, 1 + line);
+                    itemPs.addBatch();
+                }
+            }
+            itemPs.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        return exporter.export(conn, from, toExclusive, "Rs.", Writer.nullWriter());
+    }
+
+    @Override
+    public void close() throws SQLException {
+        conn.close();
+    }
+}
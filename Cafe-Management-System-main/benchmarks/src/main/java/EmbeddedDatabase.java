@@ -0,0 +1,53 @@
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory database on the embedded backend with the application schema, so benchmarks need no server
+final class EmbeddedDatabase {
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private EmbeddedDatabase() {
+    }
+
+    // A fresh, empty database per call
+    static Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(newUrl(), "sa", "");
+        CafeSchema.migrate(conn, new SalesRollup());
+        return conn;
+    }
+
+    // A fresh, empty database behind a connection pool, as the application uses it
+    static ConnectionPool openPool(int statementCacheSize) throws SQLException {
+        ConnectionPool pool = new ConnectionPool(newUrl(), "sa", "", 2, 10_000, 300_000, 30_000, statementCacheSize, null);
+        try (Connection conn = pool.getConnection()) {
+            CafeSchema.migrate(conn, new SalesRollup());
+        }
+        return pool;
+    }
+
+    private static String newUrl() {
+        return EmbeddedBackend.url("mem:cafe_bench_" + COUNT.incrementAndGet()) + ";DB_CLOSE_DELAY=-1";
+    }
+
+    // Add menu items with stock that will not run out during a run; returns their ids
+    static int[] seedMenu(Connection conn, int count) throws SQLException {
+        int[] ids = new int[count];
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO menu_items (name, category, price, available, stock_quantity) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < count; i++) {
+                ps.setString(1, "Item " + i);
+                ps.setString(2, i % 2 == 0 ? "Beverage" : "Snack");
+                ps.setBigDecimal(3, java.math.BigDecimal.valueOf(4999 + i * 125L, 2));
+                ps.setBoolean(4, true);
+                ps.setInt(5, 1_000_000_000);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < count && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                }
+            }
+        }
+        return ids;
+    }
+}
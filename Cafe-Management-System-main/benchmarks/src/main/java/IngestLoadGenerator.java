@@ -0,0 +1,87 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IngestLoadGenerator {
+    // Usage: IngestLoadGenerator <baseUrl> <clients> <ordersPerClient> <itemId[,itemId...]> [<username> <password>]
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://127.0.0.1:8085";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int ordersPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        String[] itemIds = (args.length > 3 ? args[3] : "1,2,3,4,5").split(",");
+        String username = args.length > 4 ? args[4] : null;
+        String password = args.length > 5 ? args[5] : "";
+
+        // Every order carries one unit of each item so line count matches the target scenario
+        StringBuilder body = new StringBuilder("{\"orderType\":\"Takeaway\",\"lines\":[");
+        for (int i = 0; i < itemIds.length; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"itemId\":").append(itemIds[i].trim()).append(",\"quantity\":1}");
+        }
+        body.append("]}");
+        HttpClient client = HttpClient.newBuilder().build();
+        HttpRequest.Builder orderRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        // One session shared by every client, as for a server started with cafe.ingest.requireLogin
+        if (username != null) {
+            orderRequest.header("Authorization", "Bearer " + login(client, baseUrl, username, password));
+        }
+        HttpRequest request = orderRequest.build();
+
+        long[] latencies = new long[clients * ordersPerClient];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService workers = DbExecutor.newWorkerExecutor("ingest-load");
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            workers.submit(() -> {
+                for (int n = 0; n < ordersPerClient; n++) {
+                    long sent = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    latencies[next.getAndIncrement()] = System.nanoTime() - sent;
+                    if (status != 201) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("orders=%d failed=%d clients=%d lines=%d%n", latencies.length, failures.get(), clients, itemIds.length);
+        System.out.printf("throughput=%.1f orders/s%n", latencies.length / (elapsed / 1e9));
+        System.out.printf("p50=%.1f ms p99=%.1f ms max=%.1f ms%n", percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static String login(HttpClient client, String baseUrl, String username, String password) throws Exception {
+        StringBuilder body = new StringBuilder("{\"username\":");
+        Json.quote(body, username).append(",\"password\":");
+        Json.quote(body, password).append('}');
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with " + response.statusCode() + ": " + response.body());
+        }
+        return (String) ((Map<?, ?>) Json.parse(response.body())).get("token");
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,59 @@
+import cafe.benchmarks.Workload;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Best sellers, category totals and pair counts over synthetic baskets already loaded into columns,
+// so the timing covers the fork/join computation and not the database read
+public class ItemAnalyticsWorkload implements Workload {
+    private static final int MENU_SIZE = 120;
+
+    private final OrderItemColumns columns;
+    private final MenuItem[] menu = new MenuItem[MENU_SIZE + 1];
+    private final ForkJoinPool pool;
+    private final ItemAnalytics analytics;
+
+    public ItemAnalyticsWorkload(int baskets, int parallelism) {
+        for (int id = 1; id <= MENU_SIZE; id++) {
+            menu[id] = new MenuItem(id, "Item " + id, "Category " + id % 8, 50 + id, true, 100);
+        }
+        // One to six lines per basket, skewed towards the low item numbers like a real menu
+        Random random = new Random(42);
+        int[] orderStart = new int[baskets + 1];
+        int[] item = new int[baskets * 6];
+        int[] quantity = new int[item.length];
+        long[] revenue = new long[item.length];
+        int lines = 0;
+        for (int b = 0; b < baskets; b++) {
+            orderStart[b] = lines;
+            int size = 1 + random.nextInt(6);
+            for (int i = 0; i < size; i++) {
+                int dense = (int) (MENU_SIZE * Math.pow(random.nextDouble(), 2));
+                item[lines] = dense;
+                quantity[lines] = 1 + random.nextInt(3);
+                revenue[lines] = quantity[lines] * (5000L + dense * 100L);
+                lines++;
+            }
+        }
+        orderStart[baskets] = lines;
+        int[] itemIds = new int[MENU_SIZE];
+        for (int i = 0; i < MENU_SIZE; i++) {
+            itemIds[i] = i + 1;
+        }
+        columns = new OrderItemColumns(orderStart, Arrays.copyOf(item, lines), Arrays.copyOf(quantity, lines),
+                Arrays.copyOf(revenue, lines), itemIds);
+        pool = new ForkJoinPool(parallelism);
+        analytics = new ItemAnalytics(null, pool);
+    }
+
+    @Override
+    public Object run() {
+        return analytics.compute(columns, id -> menu[id], 20, System.nanoTime());
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,23 @@
+import cafe.benchmarks.Workload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Subtotal, GST and total for an order as the till computes them before committing
+public class OrderTotalsWorkload implements Workload {
+    private final List<OrderLine> lines = new ArrayList<>();
+    private final BillCalculator calculator = BillCalculator.DEFAULT;
+
+    public OrderTotalsWorkload(int lineCount) {
+        for (int i = 0; i < lineCount; i++) {
+            lines.add(new OrderLine(i + 1, "Item " + i, 1 + i % 3, 4999 + i * 125L));
+        }
+    }
+
+    @Override
+    public Object run() {
+        Order order = new Order("Table", "4", 500, lines);
+        long gst = calculator.gst(order.getSubtotalMinor());
+        return calculator.total(order, gst);
+    }
+}
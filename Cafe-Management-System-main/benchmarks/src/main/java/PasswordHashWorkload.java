@@ -0,0 +1,10 @@
+import cafe.benchmarks.Workload;
+
+// Salted PBKDF2 hash used for user creation and the default admin; login verifies at the same cost.
+// Scales with -Dcafe.auth.iterations
+public class PasswordHashWorkload implements Workload {
+    @Override
+    public Object run() {
+        return PasswordHasher.hash("admin123");
+    }
+}
@@ -0,0 +1,34 @@
+import cafe.benchmarks.Workload;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Sales report text built from rollup rows already read from the database
+public class ReportAssemblyWorkload implements Workload {
+    private static final int ITEMS = 40;
+
+    private final LocalDate from = LocalDate.of(2024, 1, 1);
+    private final LocalDate toExclusive;
+    private final List<SalesRollup.DaySummary> days = new ArrayList<>();
+    private final List<SalesRollup.ItemTotal> items = new ArrayList<>();
+    private final Date generatedOn = new Date();
+
+    public ReportAssemblyWorkload(int dayCount) {
+        toExclusive = from.plusDays(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            long subtotal = 1_250_000 + i * 3_100L;
+            long gst = BillCalculator.DEFAULT.gst(subtotal);
+            days.add(new SalesRollup.DaySummary(from.plusDays(i), 120 + i % 17, subtotal, gst, 5_000, subtotal + gst - 5_000));
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(new SalesRollup.ItemTotal(i + 1, "Item " + i, 500 - i * 7));
+        }
+    }
+
+    @Override
+    public Object run() {
+        return ReportAnalysis.formatSalesReport("Custom Range", "Cafe Management System", "Rs.", from, toExclusive, days, items, generatedOn);
+    }
+}
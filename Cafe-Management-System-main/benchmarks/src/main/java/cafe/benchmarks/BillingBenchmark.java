@@ -0,0 +1,46 @@
+package cafe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Order total computation and the bill commit transaction, by number of lines on the order
+// and by the pool's per-connection statement cache size (0 prepares every statement)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillingBenchmark {
+    @Param({"1", "5", "20"})
+    public int lines;
+
+    @Param({"0", "64"})
+    public int statementCache;
+
+    private Workload totals;
+    private Workload commit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        totals = Workload.load("OrderTotalsWorkload", lines);
+        commit = Workload.load("BillCommitWorkload", lines, statementCache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        totals.close();
+        commit.close();
+    }
+
+    @Benchmark
+    public Object orderTotals() throws Exception {
+        return totals.run();
+    }
+
+    @Benchmark
+    public Object billCommit() throws Exception {
+        return commit.run();
+    }
+}
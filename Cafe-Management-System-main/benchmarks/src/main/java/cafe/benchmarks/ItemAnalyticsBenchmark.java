@@ -0,0 +1,38 @@
+package cafe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Item analysis over in-memory order lines at different worker counts, to show how it scales with cores
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemAnalyticsBenchmark {
+    // Orders analysed; a busy cafe rings up around 100k a year
+    @Param({"100000", "1000000"})
+    public int baskets;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private Workload analysis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        analysis = Workload.load("ItemAnalyticsWorkload", baskets, parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        analysis.close();
+    }
+
+    @Benchmark
+    public Object analyze() throws Exception {
+        return analysis.run();
+    }
+}
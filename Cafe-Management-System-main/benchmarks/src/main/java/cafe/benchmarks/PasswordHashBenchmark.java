@@ -0,0 +1,26 @@
+package cafe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Login and user creation hash every password they see; deliberately slow, so reported in milliseconds
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashBenchmark {
+    private Workload hash;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hash = Workload.load("PasswordHashWorkload");
+    }
+
+    @Benchmark
+    public Object hashPassword() throws Exception {
+        return hash.run();
+    }
+}
@@ -0,0 +1,43 @@
+package cafe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Sales report text assembly from rollup rows and CSV export of raw orders
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+    // Days in the report period; the CSV export covers 20 orders per day
+    @Param({"7", "31", "365"})
+    public int days;
+
+    private Workload assembly;
+    private Workload csvExport;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        assembly = Workload.load("ReportAssemblyWorkload", days);
+        csvExport = Workload.load("CsvExportWorkload", days);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        assembly.close();
+        csvExport.close();
+    }
+
+    @Benchmark
+    public Object reportAssembly() throws Exception {
+        return assembly.run();
+    }
+
+    @Benchmark
+    public Object csvExport() throws Exception {
+        return csvExport.run();
+    }
+}
@@ -0,0 +1,21 @@
+package cafe.benchmarks;
+
+// The application lives in the default package, which JMH benchmark classes cannot import.
+// Each workload is written in the default package against the real classes; the benchmarks
+// load it by name once per trial and call it through this interface.
+public interface Workload extends AutoCloseable {
+    Object run() throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+
+    // Instantiate a default-package workload class with the given constructor arguments
+    static Workload load(String className, Object... args) throws Exception {
+        Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = args[i] instanceof Integer ? int.class : args[i].getClass();
+        }
+        return (Workload) Class.forName(className).getConstructor(types).newInstance(args);
+    }
+}
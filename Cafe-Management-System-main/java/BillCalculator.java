@@ -0,0 +1,62 @@
+// Bill arithmetic in paise at one GST rate. The rate is held in basis points (5% = 500), so no
+// floating point is involved. GST is a single tax line on the subtotal, rounded half-up (away
+// from zero) to the paisa once per bill; the stored gst and total therefore always add up.
+public final class BillCalculator {
+    public static final BillCalculator DEFAULT = new BillCalculator(500);
+
+    private static final int BASIS_POINTS = 10_000;
+
+    private final int gstBasisPoints;
+
+    // Constructor
+    public BillCalculator(int gstBasisPoints) {
+        if (gstBasisPoints < 0 || gstBasisPoints > BASIS_POINTS) {
+            throw new IllegalArgumentException("GST rate must be between 0% and 100%");
+        }
+        this.gstBasisPoints = gstBasisPoints;
+    }
+
+    // Calculator for a rate as stored in settings.gst_rate (0.05 for 5%)
+    public static BillCalculator forRate(double gstRate) {
+        return new BillCalculator((int) Math.round(gstRate * BASIS_POINTS));
+    }
+
+    public int getGstBasisPoints() {
+        return gstBasisPoints;
+    }
+
+    // The rate as a fraction, for the settings table
+    public double getGstRate() {
+        return gstBasisPoints / (double) BASIS_POINTS;
+    }
+
+    // GST on a subtotal
+    public long gst(long subtotalMinor) {
+        long rounded = (Math.multiplyExact(Math.abs(subtotalMinor), gstBasisPoints) + BASIS_POINTS / 2) / BASIS_POINTS;
+        return subtotalMinor < 0 ? -rounded : rounded;
+    }
+
+    // Subtotal plus GST less discount
+    public long total(long subtotalMinor, long gstMinor, long discountMinor) {
+        return subtotalMinor + gstMinor - discountMinor;
+    }
+
+    public long total(Order order, long gstMinor) {
+        return total(order.getSubtotalMinor(), gstMinor, order.getDiscountMinor());
+    }
+
+    // Append the rate for a bill heading, e.g. "5%" or "12.5%"
+    public StringBuilder appendGstLabel(StringBuilder out) {
+        out.append(gstBasisPoints / 100);
+        int fraction = gstBasisPoints % 100;
+        if (fraction != 0) {
+            out.append('.');
+            if (fraction < 10) {
+                out.append('0').append(fraction);
+            } else {
+                out.append(fraction % 10 == 0 ? fraction / 10 : fraction);
+            }
+        }
+        return out.append('%');
+    }
+}
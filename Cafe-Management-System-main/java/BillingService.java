@@ -0,0 +1,216 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BillingService {
+    private final MenuCatalog catalog;
+    private final SalesRollup salesRollup;
+    private final StockLedger stockLedger;
+    private final InventoryJournal journal;
+    private final SettingsService settings;
+    private final OrderEventStream events;
+    private final MenuRepository menuRepository = new MenuRepository();
+    private final OrderRepository orderRepository = new OrderRepository();
+    private final InventoryRepository inventoryRepository = new InventoryRepository();
+
+    // A committed order as returned to the till or terminal
+    public static final class Receipt {
+        private final int orderId;
+        private final Order order;
+        private final long gstMinor;
+        private final long totalMinor;
+        private final Timestamp orderDate;
+        private final SettingsService.Snapshot settings;
+        private final SessionManager.Principal cashier;
+
+        Receipt(int orderId, Order order, long gstMinor, long totalMinor, Timestamp orderDate, SettingsService.Snapshot settings,
+                SessionManager.Principal cashier) {
+            this.orderId = orderId;
+            this.order = order;
+            this.gstMinor = gstMinor;
+            this.totalMinor = totalMinor;
+            this.orderDate = orderDate;
+            this.settings = settings;
+            this.cashier = cashier;
+        }
+
+        public int getOrderId() {
+            return orderId;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public long getGstMinor() {
+            return gstMinor;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+
+        public Timestamp getOrderDate() {
+            return orderDate;
+        }
+
+        // The settings the order was billed under, for printing it with the same rate and currency
+        public SettingsService.Snapshot getSettings() {
+            return settings;
+        }
+
+        // The rate the order was billed at
+        public BillCalculator getCalculator() {
+            return settings.getCalculator();
+        }
+
+        // Who placed the order, or null if nobody was logged in
+        public SessionManager.Principal getCashier() {
+            return cashier;
+        }
+    }
+
+    // Constructor; journal may be null to write inventory transactions inside the order transaction,
+    // and events may be null when nothing watches live sales
+    public BillingService(MenuCatalog catalog, SalesRollup salesRollup, StockLedger stockLedger, InventoryJournal journal,
+                          SettingsService settings, OrderEventStream events) {
+        this.catalog = catalog;
+        this.salesRollup = salesRollup;
+        this.stockLedger = stockLedger;
+        this.journal = journal;
+        this.settings = settings;
+        this.events = events;
+    }
+
+    // Price one line from the catalog and reserve its stock on the order's hold
+    public OrderLine priceLine(Connection conn, StockLedger.Hold hold, int itemId, int quantity) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        MenuItem item = catalog.snapshot(conn).get(itemId);
+        if (item == null || !item.isAvailable()) {
+            throw new IllegalArgumentException("Unknown or unavailable item ID " + itemId);
+        }
+        stockLedger.reserve(conn, hold, itemId, quantity);
+        return new OrderLine(itemId, item.getName(), quantity, Money.ofDouble(item.getPrice()));
+    }
+
+    // Build an order priced from the catalog, without touching the database when the catalog is current
+    public Order buildOrder(Connection conn, String orderType, String tableNumber, long discountMinor,
+                            int[] itemIds, int[] quantities) throws SQLException {
+        MenuCatalog.Snapshot menu = catalog.snapshot(conn);
+        List<OrderLine> lines = new ArrayList<>(itemIds.length);
+        for (int i = 0; i < itemIds.length; i++) {
+            MenuItem item = menu.get(itemIds[i]);
+            if (item == null || !item.isAvailable()) {
+                throw new IllegalArgumentException("Unknown or unavailable item ID " + itemIds[i]);
+            }
+            lines.add(new OrderLine(item.getId(), item.getName(), quantities[i], Money.ofDouble(item.getPrice())));
+        }
+        return new Order(orderType, tableNumber, discountMinor, lines);
+    }
+
+    // Reserve, total and commit an order in one call, for terminals that send the whole order at once
+    public Receipt placeOrder(Connection conn, Order order, SessionManager.Principal cashier) throws SQLException {
+        StockLedger.Hold hold = stockLedger.openHold();
+        try {
+            return placeOrder(conn, order, hold, cashier);
+        } finally {
+            stockLedger.release(hold);
+        }
+    }
+
+    // Total and commit an order against its hold, stamped with the cashier (may be null);
+    // throws InsufficientStockException if any item ran out of stock
+    public Receipt placeOrder(Connection conn, Order order, StockLedger.Hold hold, SessionManager.Principal cashier) throws SQLException {
+        if (order.isEmpty()) {
+            throw new IllegalArgumentException("Order has no items");
+        }
+        if (order.getDiscountMinor() < 0 || order.getDiscountMinor() > order.getSubtotalMinor()) {
+            throw new IllegalArgumentException("Discount must be between zero and the subtotal");
+        }
+        stockLedger.reserveOrder(conn, hold, order);
+        SettingsService.Snapshot billedUnder = settings.current();
+        BillCalculator calc = billedUnder.getCalculator();
+        long gst = calc.gst(order.getSubtotalMinor());
+        long total = calc.total(order, gst);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Integer userId = cashier != null ? cashier.getId() : null;
+
+        MenuCatalog.Snapshot before = catalog.cached();
+        int orderId = commitOrder(conn, order, gst, total, now, userId);
+        // The order is committed: nothing below may report it as failed, or the caller would retry and bill it twice
+        Map<Integer, Integer> stockChanges = new LinkedHashMap<>();
+        for (int i = 0; i < order.getItemCount(); i++) {
+            stockChanges.put(order.getItemId(i), -order.getItemQuantity(i));
+        }
+        if (journal != null) {
+            journalDeductions(conn, order, now, userId);
+        }
+        stockLedger.settle(hold, before, stockChanges);
+        Receipt receipt = new Receipt(orderId, order, gst, total, now, billedUnder, cashier);
+        if (events != null) {
+            events.publish(receipt);
+        }
+        return receipt;
+    }
+
+    // Write-behind: durable in the local journal now, in MySQL on the next flush. If the journal cannot take
+    // the entries (full, or MySQL refusing flushes) they are inserted directly instead.
+    private void journalDeductions(Connection conn, Order order, Timestamp now, Integer userId) {
+        int[] itemIds = new int[order.getItemCount()];
+        int[] quantities = new int[order.getItemCount()];
+        for (int i = 0; i < order.getItemCount(); i++) {
+            itemIds[i] = order.getItemId(i);
+            quantities[i] = order.getItemQuantity(i);
+        }
+        try {
+            journal.appendAll(itemIds, quantities, "Order Deduction", now, userId);
+            return;
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Inventory journal rejected order deductions, writing them directly: " + e.getMessage());
+        }
+        try {
+            inventoryRepository.insertAll(conn, deductions(order, now, userId));
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Could not log inventory deductions for a committed order: " + e.getMessage());
+        }
+    }
+
+    private static List<InventoryRepository.Transaction> deductions(Order order, Timestamp now, Integer userId) {
+        List<InventoryRepository.Transaction> transactions = new ArrayList<>(order.getItemCount());
+        for (int i = 0; i < order.getItemCount(); i++) {
+            transactions.add(new InventoryRepository.Transaction(order.getItemId(i), order.getItemQuantity(i), "Order Deduction", now, userId));
+        }
+        return transactions;
+    }
+
+    // Save an order, its items, stock decrements and inventory log in one transaction.
+    // Each table is written with a single batch, so the round-trips do not grow with line count.
+    private int commitOrder(Connection conn, Order order, long gstMinor, long totalMinor, Timestamp now, Integer userId) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            int shortItem = menuRepository.decrementStock(conn, order);
+            if (shortItem >= 0) {
+                throw new InsufficientStockException("Insufficient stock for item ID " + order.getItemId(shortItem));
+            }
+            int orderId = orderRepository.insert(conn, order, gstMinor, totalMinor, now, userId);
+            orderRepository.insertItems(conn, orderId, order);
+            // Log inventory transactions here unless the journal takes them
+            if (journal == null) {
+                inventoryRepository.insertAll(conn, deductions(order, now, userId));
+            }
+            salesRollup.recordOrder(conn, now.toLocalDateTime().toLocalDate(), order, gstMinor, totalMinor);
+
+            conn.commit();
+            return orderId;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class BusyPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private final Map<DbExecutor.Task<?>, String> running = new LinkedHashMap<>();
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JButton cancelButton = new JButton("Cancel");
+
+    // Constructor
+    public BusyPanel() {
+        super(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+        progressBar.setIndeterminate(true);
+        add(statusLabel, BorderLayout.WEST);
+        add(progressBar, BorderLayout.CENTER);
+        add(cancelButton, BorderLayout.EAST);
+
+        // Cancel everything this panel is waiting on
+        cancelButton.addActionListener(e -> {
+            for (DbExecutor.Task<?> task : running.keySet().toArray(new DbExecutor.Task<?>[0])) {
+                task.cancel();
+                untrack(task);
+            }
+        });
+        setVisible(false);
+    }
+
+    // Show a task as running (EDT only)
+    public void track(DbExecutor.Task<?> task, String label) {
+        running.put(task, label == null ? "Working..." : label);
+        refresh();
+    }
+
+    // Remove a finished or cancelled task (EDT only)
+    public void untrack(DbExecutor.Task<?> task) {
+        if (running.remove(task) != null) {
+            refresh();
+        }
+    }
+
+    // Switch to determinate progress for long jobs (EDT only)
+    public void setProgress(int done, int total) {
+        if (total <= 0) {
+            progressBar.setIndeterminate(true);
+            progressBar.setStringPainted(false);
+            return;
+        }
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(total);
+        progressBar.setValue(done);
+        progressBar.setStringPainted(true);
+        progressBar.setString(done + " / " + total);
+    }
+
+    // Whether any task is still running (EDT only)
+    public boolean isBusy() {
+        return !running.isEmpty();
+    }
+
+    private void refresh() {
+        boolean busy = !running.isEmpty();
+        if (busy) {
+            String label = null;
+            for (String l : running.values()) {
+                label = l;
+            }
+            statusLabel.setText(label);
+        } else {
+            setProgress(0, 0);
+            statusLabel.setText(" ");
+        }
+        setVisible(busy);
+        Container parent = getParent();
+        if (parent != null) {
+            parent.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+            parent.revalidate();
+        }
+    }
+}
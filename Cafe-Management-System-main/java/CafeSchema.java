@@ -0,0 +1,103 @@
+import java.sql.*;
+
+public final class CafeSchema {
+    private CafeSchema() {
+    }
+
+    // Bring the schema up to date; does nothing when it is already current
+    public static void migrate(Connection conn, SalesRollup salesRollup) throws SQLException {
+        new SchemaMigrator()
+                .add(1, "Base tables and defaults", CafeSchema::createTables)
+                .add(2, "Daily sales rollup", salesRollup::createTables)
+                .add(3, "Report and inventory indexes", CafeSchema::createIndexes)
+                .add(4, "Inventory journal checkpoint", InventoryJournal::createTables)
+                .add(5, "GST rate in basis points", CafeSchema::widenGstRate)
+                .add(6, "Salted password hashes and cashier on orders", CafeSchema::addUserAttribution)
+                .add(7, "Unit price on order items", CafeSchema::addItemUnitPrice)
+                .add(8, "Reorder point per menu item", CafeSchema::addReorderPoint)
+                .add(9, "Sales rollup backfilled from order history", salesRollup::backfillAll)
+                .add(10, "Salted hash for the default admin password", CafeSchema::rehashDefaultAdmin)
+                .migrate(conn);
+    }
+
+    // Create necessary tables
+    private static void createTables(Connection conn) throws SQLException {
+        String userTable = "CREATE TABLE IF NOT EXISTS users (id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50) UNIQUE, password VARCHAR(64), role VARCHAR(20))";
+        String menuTable = "CREATE TABLE IF NOT EXISTS menu_items (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), category VARCHAR(50), price DECIMAL(10,2), available BOOLEAN, stock_quantity INT DEFAULT 100)";
+        String orderTable = "CREATE TABLE IF NOT EXISTS orders (id INT AUTO_INCREMENT PRIMARY KEY, order_type VARCHAR(20), table_number VARCHAR(10), subtotal DECIMAL(10,2), gst DECIMAL(10,2), discount DECIMAL(10,2), total DECIMAL(10,2), order_date DATETIME)";
+        String orderItemTable = "CREATE TABLE IF NOT EXISTS order_items (id INT AUTO_INCREMENT PRIMARY KEY, order_id INT, item_id INT, quantity INT, FOREIGN KEY (order_id) REFERENCES orders(id), FOREIGN KEY (item_id) REFERENCES menu_items(id))";
+        String inventoryTransactionTable = "CREATE TABLE IF NOT EXISTS inventory_transactions (id INT AUTO_INCREMENT PRIMARY KEY, item_id INT, quantity INT, transaction_type VARCHAR(20), transaction_date DATETIME, FOREIGN KEY (item_id) REFERENCES menu_items(id))";
+        String settingsTable = "CREATE TABLE IF NOT EXISTS settings (id INT PRIMARY KEY, cafe_name VARCHAR(100), gst_rate DECIMAL(5,2), currency VARCHAR(10))";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(userTable);
+            stmt.execute(menuTable);
+            stmt.execute(orderTable);
+            stmt.execute(orderItemTable);
+            stmt.execute(inventoryTransactionTable);
+            stmt.execute(settingsTable);
+        }
+
+        // Insert default admin user
+        String adminQuery = "INSERT IGNORE INTO users (username, password, role) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(adminQuery)) {
+            ps.setString(1, "admin");
+            ps.setString(2, PasswordHasher.sha256Hex("admin123"));
+            ps.setString(3, "Admin");
+            ps.executeUpdate();
+        }
+
+        // Insert default settings
+        String settingsQuery = "INSERT IGNORE INTO settings (id, cafe_name, gst_rate, currency) VALUES (1, ?, ?, ?)";
+        try (PreparedStatement settingsPs = conn.prepareStatement(settingsQuery)) {
+            settingsPs.setString(1, SettingsService.DEFAULT_CAFE_NAME);
+            settingsPs.setDouble(2, BillCalculator.DEFAULT.getGstRate());
+            settingsPs.setString(3, SettingsService.DEFAULT_CURRENCY);
+            settingsPs.executeUpdate();
+        }
+    }
+
+    // DECIMAL(5,2) held 0.05 but rounded 12.5% to 0.13; four places keep every basis point
+    private static void widenGstRate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE settings MODIFY gst_rate DECIMAL(7,4)");
+        }
+    }
+
+    // Room for PBKDF2 hashes, and the user who placed each order or stock change (null before this version)
+    private static void addUserAttribution(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE users MODIFY password VARCHAR(255)");
+        }
+        SchemaMigrator.addColumn(conn, "orders", "user_id", "INT");
+        SchemaMigrator.addColumn(conn, "inventory_transactions", "user_id", "INT");
+    }
+
+    // The seeded admin still has the unsalted default hash on every database created before PBKDF2, and on new
+    // ones from migration 1; any other legacy hash is rewritten at that user's next login
+    private static void rehashDefaultAdmin(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE users SET password = ? WHERE username = ? AND password = ?")) {
+            ps.setString(1, PasswordHasher.hash("admin123"));
+            ps.setString(2, "admin");
+            ps.setString(3, PasswordHasher.sha256Hex("admin123"));
+            ps.executeUpdate();
+        }
+    }
+
+    // Price charged per unit, so item revenue survives menu price changes (null for older orders)
+    private static void addItemUnitPrice(Connection conn) throws SQLException {
+        SchemaMigrator.addColumn(conn, "order_items", "unit_price", "DECIMAL(10,2)");
+    }
+
+    // Low-stock threshold per item; existing items keep the old fixed threshold
+    private static void addReorderPoint(Connection conn) throws SQLException {
+        SchemaMigrator.addColumn(conn, "menu_items", "reorder_point", "INT NOT NULL DEFAULT " + MenuItem.DEFAULT_REORDER_POINT);
+    }
+
+    // Indexes for date-range reports, transaction history and imports
+    private static void createIndexes(Connection conn) throws SQLException {
+        SchemaMigrator.createIndex(conn, "orders", "idx_orders_order_date", "order_date");
+        SchemaMigrator.createIndex(conn, "inventory_transactions", "idx_inventory_transactions_date", "transaction_date");
+        SchemaMigrator.createIndex(conn, "inventory_transactions", "idx_inventory_transactions_item_date", "item_id, transaction_date");
+        SchemaMigrator.createIndex(conn, "menu_items", "idx_menu_items_name", "name");
+    }
+}
@@ -0,0 +1,310 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class ConnectionPool implements AutoCloseable {
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+    private final QueryMetrics metrics;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Constructor
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis) {
+        this(url, user, password, maxSize, borrowTimeoutMillis, idleTimeoutMillis, validationIntervalMillis,
+                DEFAULT_STATEMENT_CACHE_SIZE, null);
+    }
+
+    // Constructor; each connection keeps up to statementCacheSize prepared statements open (0 disables),
+    // and statements on borrowed connections are timed into metrics when it is not null
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis,
+                          int statementCacheSize, QueryMetrics metrics) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.metrics = metrics;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrow a connection; closing it returns it to the pool
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection (" + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (validate(pooled)) {
+                    return pooled.lease();
+                }
+                pooled.discard();
+            }
+            pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Check an idle connection before handing it out
+    private boolean validate(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Return a leased connection to the idle queue
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                pooled.discard();
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (pooled.physical.isReadOnly()) {
+                pooled.physical.setReadOnly(false);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            pooled.discard();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Close connections that have sat idle past the timeout
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastUsed < cutoff && idle.remove(pooled)) {
+                pooled.discard();
+            }
+        }
+    }
+
+    // Number of connections currently borrowed
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    // Number of open connections waiting in the pool
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.discard();
+        }
+    }
+
+    // Physical connection plus pool bookkeeping
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements = new StatementCache(statementCacheSize);
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new LeaseHandler(this));
+        }
+
+        void discard() {
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Already broken, nothing to do
+            }
+        }
+    }
+
+    // Routes calls to the physical connection until the lease is closed
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final List<CachedStatementHandler> open = new ArrayList<>();
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        // Statements the caller forgot to close go back to the cache, not to waste
+                        for (CachedStatementHandler handler : new ArrayList<>(open)) {
+                            handler.checkIn();
+                        }
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(pooled.physical)) {
+                        return pooled.physical;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                return prepare(method, args);
+            }
+            Object result = call(method, args);
+            if (metrics != null && result instanceof Statement) {
+                return metrics.instrument((Statement) result, method.getName().equals("createStatement") ? null : (String) args[0]);
+            }
+            return result;
+        }
+
+        // Reuse a statement this connection prepared earlier for the same SQL and options
+        private Statement prepare(Method method, Object[] args) throws Throwable {
+            String sql = (String) args[0];
+            String key = args.length == 1 ? sql : sql + Arrays.deepToString(Arrays.copyOfRange(args, 1, args.length));
+            PreparedStatement ps = pooled.statements.take(key);
+            // Hits are counted per statement by QueryMetrics, which publishes the ratio over JMX
+            boolean hit = ps != null;
+            if (!hit) {
+                ps = (PreparedStatement) call(method, args);
+            }
+            CachedStatementHandler handler = new CachedStatementHandler(this, key, ps);
+            open.add(handler);
+            PreparedStatement leased = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handler);
+            return metrics != null ? metrics.instrument(leased, sql, hit) : leased;
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // A cached statement lent to one caller; closing it hands it back to the connection's cache
+    private static final class CachedStatementHandler implements InvocationHandler {
+        private final LeaseHandler lease;
+        private final String key;
+        private final PreparedStatement target;
+        private boolean closed;
+
+        CachedStatementHandler(LeaseHandler lease, String key, PreparedStatement target) {
+            this.lease = lease;
+            this.key = key;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    checkIn();
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void checkIn() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lease.open.remove(this);
+            lease.pooled.statements.put(key, target);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Database settings, read in increasing priority from backend defaults, the properties file
+// (cafe.properties, or the file named by -Dcafe.config), -Dcafe.db.* system properties
+// and, for the password, the CAFE_DB_PASSWORD environment variable
+public final class DatabaseConfig {
+    private final StorageBackend backend;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int poolSize;
+    private final int statementCacheSize;
+
+    private DatabaseConfig(StorageBackend backend, String url, String user, String password, int poolSize, int statementCacheSize) {
+        this.backend = backend;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public static DatabaseConfig load() throws IOException {
+        Properties file = new Properties();
+        Path path = Paths.get(System.getProperty("cafe.config", "cafe.properties"));
+        if (Files.isReadable(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                file.load(in);
+            }
+        } else if (System.getProperty("cafe.config") != null) {
+            throw new IOException("Config file not found: " + path.toAbsolutePath());
+        }
+        StorageBackend backend = StorageBackend.forName(setting(file, "db.backend", StorageBackend.MYSQL.getName()));
+        String password = setting(file, "db.password", "");
+        String envPassword = System.getenv("CAFE_DB_PASSWORD");
+        if (envPassword != null) {
+            password = envPassword;
+        }
+        int poolSize = intSetting(file, "db.poolSize", backend.getDefaultPoolSize());
+        int statementCacheSize = intSetting(file, "db.statementCacheSize", ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        return new DatabaseConfig(backend, setting(file, "db.url", backend.getDefaultUrl()),
+                setting(file, "db.user", backend.getDefaultUser()), password, poolSize, statementCacheSize);
+    }
+
+    private static int intSetting(Properties file, String key, int defaultValue) throws IOException {
+        try {
+            return Integer.parseInt(setting(file, key, Integer.toString(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(key + " must be a number");
+        }
+    }
+
+    // -Dcafe.<key> wins over the file, which wins over the default
+    private static String setting(Properties file, String key, String defaultValue) {
+        return System.getProperty("cafe." + key, file.getProperty(key, defaultValue));
+    }
+
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    // Prepared statements each pooled connection keeps open for reuse
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+}
@@ -0,0 +1,142 @@
+import javax.swing.*;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class DbExecutor implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final ExecutorService workers;
+
+    // Database work run on a worker thread with a borrowed connection
+    public interface SqlWork<T> {
+        T run(Connection conn) throws Exception;
+    }
+
+    // Constructor
+    public DbExecutor(ConnectionPool pool) {
+        this.pool = pool;
+        this.workers = newWorkerExecutor("db-worker");
+    }
+
+    // Use one virtual thread per task when the runtime has them, otherwise a pool of daemon threads
+    static ExecutorService newWorkerExecutor(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Run work off the EDT; callbacks are posted back to the EDT unless the task was cancelled
+    public <T> Task<T> submit(BusyPanel busy, String label, SqlWork<T> work,
+                              Consumer<T> onSuccess, Consumer<Exception> onError) {
+        return run(busy, label, true, work, onSuccess, onError);
+    }
+
+    // Run work that needs no database, such as reading the order archive, without taking a pooled connection
+    public <T> Task<T> submitLocal(BusyPanel busy, String label, Callable<T> work,
+                                   Consumer<T> onSuccess, Consumer<Exception> onError) {
+        return run(busy, label, false, conn -> work.call(), onSuccess, onError);
+    }
+
+    private <T> Task<T> run(BusyPanel busy, String label, boolean borrow, SqlWork<T> work,
+                            Consumer<T> onSuccess, Consumer<Exception> onError) {
+        Task<T> task = new Task<>();
+        if (busy != null) {
+            busy.track(task, label);
+        }
+        task.future = workers.submit(() -> {
+            T result = null;
+            Exception failure = null;
+            try (Connection conn = borrow ? pool.getConnection() : null) {
+                task.attach(conn);
+                result = work.run(conn);
+            } catch (Exception ex) {
+                failure = ex;
+            } finally {
+                task.attach(null);
+            }
+            T finalResult = result;
+            Exception finalFailure = failure;
+            SwingUtilities.invokeLater(() -> {
+                if (busy != null) {
+                    busy.untrack(task);
+                }
+                if (task.isCancelled()) {
+                    return;
+                }
+                if (finalFailure != null) {
+                    if (onError != null) onError.accept(finalFailure);
+                } else if (onSuccess != null) {
+                    onSuccess.accept(finalResult);
+                }
+            });
+            return result;
+        });
+        return task;
+    }
+
+    // Run work with no busy indicator
+    public <T> Task<T> submit(SqlWork<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        return submit(null, null, work, onSuccess, onError);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    // Handle to a submitted task; cancelling aborts the in-flight statement
+    public static class Task<T> {
+        private volatile Future<T> future;
+        private volatile Connection active;
+        private volatile boolean cancelled;
+
+        private synchronized void attach(Connection conn) {
+            if (conn != null && cancelled) {
+                throw new CancellationException("Task cancelled");
+            }
+            active = conn;
+        }
+
+        public synchronized void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            Connection conn = active;
+            if (conn != null) {
+                try {
+                    // Aborting closes the socket so a blocked query returns; the pool discards it
+                    conn.abort(Runnable::run);
+                } catch (Exception e) {
+                    // Best effort, the interrupt below still stops the worker
+                }
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return future != null && future.isDone();
+        }
+
+        // Block for the result, for callers that are already off the EDT
+        public T get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+    }
+}
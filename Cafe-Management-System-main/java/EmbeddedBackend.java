@@ -0,0 +1,43 @@
+import java.sql.SQLException;
+
+// H2 running inside the application in MySQL compatibility mode, for single-till kiosks,
+// benchmarks and load tests; no server or network hop
+public class EmbeddedBackend implements StorageBackend {
+    // H2 error for "Index already exists"
+    private static final int INDEX_ALREADY_EXISTS = 42111;
+
+    // JDBC URL for an H2 database at a location such as "file:./data/cafe_db" or "mem:test"
+    public static String url(String location) {
+        return "jdbc:h2:" + location + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    }
+
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+    @Override
+    public String getDefaultUrl() {
+        return url("file:./data/cafe_db");
+    }
+
+    @Override
+    public String getDefaultUser() {
+        return "sa";
+    }
+
+    @Override
+    public int getDefaultPoolSize() {
+        return 4;
+    }
+
+    @Override
+    public boolean isDuplicateIndex(SQLException e) {
+        return e.getErrorCode() == INDEX_ALREADY_EXISTS;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        return 1000;
+    }
+}
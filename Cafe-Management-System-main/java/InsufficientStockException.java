@@ -0,0 +1,8 @@
+// An order or line asked for more units than are in stock and not held by other orders
+public class InsufficientStockException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+public class InventoryJournal implements AutoCloseable {
+    private static final int HEADER_MAGIC = 0x494A4844;
+    // Version 1 records have no user; version 2 adds one before the type, and both are read back
+    private static final int RECORD_MAGIC_V1 = 0x494A524E;
+    private static final int RECORD_MAGIC = 0x494A5232;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int CRC_OFFSET = 60;
+    private static final int TYPE_OFFSET_V1 = 28;
+    private static final int USER_OFFSET = 28;
+    private static final int TYPE_OFFSET = 32;
+    private static final int MAX_TYPE_BYTES = CRC_OFFSET - TYPE_OFFSET - 1;
+    private static final String UPDATE_CHECKPOINT = "UPDATE inventory_journal_checkpoint SET flushed_seq = ? WHERE id = 1";
+
+    private final ConnectionPool pool;
+    private final InventoryRepository inventoryRepository = new InventoryRepository();
+    private final int batchSize;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object syncLock = new Object();
+    private final Object flushLock = new Object();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private final ScheduledExecutorService flusher;
+
+    // Guarded by writeLock
+    private int position = HEADER_SIZE;
+    private long nextSeq = 1;
+    private volatile long appendedSeq;
+    // Guarded by syncLock
+    private long durableSeq;
+    private boolean syncing;
+    // Highest sequence known to be in MySQL
+    private volatile long flushedSeq;
+
+    // One inventory_transactions row waiting to be written
+    private static final class Entry {
+        private final long seq;
+        private final int itemId;
+        private final int quantity;
+        private final String type;
+        private final long timeMillis;
+        // 0 when no user is recorded
+        private final int userId;
+
+        Entry(long seq, int itemId, int quantity, String type, long timeMillis, int userId) {
+            this.seq = seq;
+            this.itemId = itemId;
+            this.quantity = quantity;
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.userId = userId;
+        }
+    }
+
+    // Open or create the journal file; call recover before appending
+    public InventoryJournal(Path file, int capacityBytes, ConnectionPool pool, int batchSize) throws IOException {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), Math.max(capacityBytes, HEADER_SIZE + RECORD_SIZE));
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size - size % RECORD_SIZE);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Checkpoint written in the same transaction as each flushed batch, so replay never duplicates rows
+    public static void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS inventory_journal_checkpoint (id INT PRIMARY KEY, flushed_seq BIGINT NOT NULL)");
+            stmt.execute("INSERT IGNORE INTO inventory_journal_checkpoint (id, flushed_seq) VALUES (1, 0)");
+        }
+    }
+
+    // Replay entries a crash left unflushed, then start the background flusher; returns how many were replayed
+    public int recover(Connection conn, long flushIntervalMillis) throws SQLException {
+        long checkpoint;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT flushed_seq FROM inventory_journal_checkpoint WHERE id = 1")) {
+            checkpoint = rs.next() ? rs.getLong(1) : 0;
+        }
+        int replayed = 0;
+        writeLock.lock();
+        try {
+            long headerSeq = buffer.getInt(0) == HEADER_MAGIC ? buffer.getLong(8) : 0;
+            long maxSeq = Math.max(headerSeq, checkpoint);
+            position = HEADER_SIZE;
+            Entry entry;
+            // Records are written in order; the first torn or blank slot ends the log
+            while ((entry = readRecord(position)) != null) {
+                if (entry.seq > checkpoint) {
+                    synchronized (pending) {
+                        pending.add(entry);
+                    }
+                    replayed++;
+                }
+                maxSeq = Math.max(maxSeq, entry.seq);
+                position += RECORD_SIZE;
+            }
+            nextSeq = maxSeq + 1;
+            appendedSeq = maxSeq;
+            flushedSeq = checkpoint;
+            synchronized (syncLock) {
+                durableSeq = maxSeq;
+            }
+            if (buffer.getInt(0) != HEADER_MAGIC) {
+                writeHeader(maxSeq);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (replayed > 0) {
+            flush(conn);
+        } else {
+            compact();
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        return replayed;
+    }
+
+    // Append a transaction and wait until it is on disk; MySQL receives it on the next flush. userId may be null.
+    public void append(int itemId, int quantity, String type, Timestamp when, Integer userId) throws SQLException {
+        appendAll(new int[]{itemId}, new int[]{quantity}, type, when, userId);
+    }
+
+    // Append several transactions with a single fsync. Either all of them are queued for MySQL or, if this throws,
+    // none are, so a caller can fall back to inserting them itself without duplicating rows.
+    public void appendAll(int[] itemIds, int[] quantities, String type, Timestamp when, Integer userId) throws SQLException {
+        long last = write(itemIds, quantities, type, when.getTime(), userId != null ? userId : 0);
+        try {
+            awaitDurable(last);
+        } catch (RuntimeException e) {
+            // Already queued: the entries still reach MySQL on the next flush, they just would not survive a crash before it
+            System.err.println("Inventory journal sync failed: " + e.getMessage());
+        }
+    }
+
+    // Write all records under one lock so they land together or not at all; returns the last sequence
+    private long write(int[] itemIds, int[] quantities, String type, long timeMillis, int userId) throws SQLException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+        if (typeBytes.length > MAX_TYPE_BYTES) {
+            throw new IllegalArgumentException("Transaction type too long: " + type);
+        }
+        int bytes = itemIds.length * RECORD_SIZE;
+        for (int attempt = 0; ; attempt++) {
+            writeLock.lock();
+            try {
+                if (position + bytes <= buffer.capacity()) {
+                    long seq = 0;
+                    for (int i = 0; i < itemIds.length; i++) {
+                        seq = nextSeq++;
+                        ByteBuffer record = buffer.duplicate();
+                        record.position(position);
+                        record.putInt(RECORD_MAGIC).putLong(seq).putInt(itemIds[i]).putInt(quantities[i]).putLong(timeMillis)
+                                .putInt(userId).put((byte) typeBytes.length).put(typeBytes);
+                        buffer.putInt(position + CRC_OFFSET, checksum(position));
+                        position += RECORD_SIZE;
+                        synchronized (pending) {
+                            pending.add(new Entry(seq, itemIds[i], quantities[i], type, timeMillis, userId));
+                        }
+                    }
+                    appendedSeq = seq;
+                    return seq;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            if (attempt > 0) {
+                throw new IllegalStateException("Inventory journal has no room for " + itemIds.length + " entries after flushing to MySQL");
+            }
+            // Out of room: drain to MySQL now so the file can be reset
+            try (Connection conn = pool.getConnection()) {
+                flush(conn);
+            }
+        }
+    }
+
+    // Group commit: the first caller forces the file for everything written so far while later callers
+    // wait, so concurrent sales share one fsync. The wait is one fsync long, so an interrupt is kept for later
+    // rather than abandoning a record that is already written.
+    private void awaitDurable(long seq) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                synchronized (syncLock) {
+                    while (syncing && durableSeq < seq) {
+                        try {
+                            syncLock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (durableSeq >= seq) {
+                        return;
+                    }
+                    syncing = true;
+                }
+                forceGroup();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void forceGroup() {
+        long target = appendedSeq;
+        boolean forced = false;
+        try {
+            // Forced outside the monitor so new writers keep appending into the next group
+            buffer.force();
+            forced = true;
+        } finally {
+            synchronized (syncLock) {
+                syncing = false;
+                if (forced) {
+                    durableSeq = Math.max(durableSeq, target);
+                }
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // Batch-insert pending entries and advance the checkpoint in the same transaction, then reclaim the file
+    public int flush(Connection conn) throws SQLException {
+        int flushed = 0;
+        synchronized (flushLock) {
+            while (true) {
+                List<Entry> batch = new ArrayList<>(batchSize);
+                synchronized (pending) {
+                    while (!pending.isEmpty() && batch.size() < batchSize) {
+                        batch.add(pending.poll());
+                    }
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                insertBatch(conn, batch);
+                flushed += batch.size();
+            }
+        }
+        compact();
+        return flushed;
+    }
+
+    private void insertBatch(Connection conn, List<Entry> batch) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<InventoryRepository.Transaction> transactions = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                transactions.add(new InventoryRepository.Transaction(entry.itemId, entry.quantity, entry.type, new Timestamp(entry.timeMillis),
+                        entry.userId != 0 ? entry.userId : null));
+            }
+            inventoryRepository.insertAll(conn, transactions);
+            long last = batch.get(batch.size() - 1).seq;
+            try (PreparedStatement checkpointPs = conn.prepareStatement(UPDATE_CHECKPOINT)) {
+                checkpointPs.setLong(1, last);
+                checkpointPs.executeUpdate();
+            }
+            conn.commit();
+            flushedSeq = last;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            // Put the batch back in front so order is kept for the next attempt
+            synchronized (pending) {
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    pending.addFirst(batch.get(i));
+                }
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Once everything appended is in MySQL, start writing from the top of the file again
+    private void compact() {
+        writeLock.lock();
+        try {
+            if (position == HEADER_SIZE || flushedSeq < appendedSeq) {
+                return;
+            }
+            writeHeader(appendedSeq);
+            // Blank the first slot so recovery stops there instead of replaying old records
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+            position = HEADER_SIZE;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        if (getPendingCount() == 0) {
+            return;
+        }
+        try (Connection conn = pool.getConnection()) {
+            flush(conn);
+        } catch (SQLException | RuntimeException e) {
+            // Entries stay queued and on disk; the next run retries
+            System.err.println("Inventory journal flush failed: " + e.getMessage());
+        }
+    }
+
+    // Entries written but not yet in MySQL
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void writeHeader(long seq) {
+        buffer.putInt(0, HEADER_MAGIC);
+        buffer.putInt(4, 2);
+        buffer.putLong(8, seq);
+    }
+
+    private Entry readRecord(int offset) {
+        if (offset + RECORD_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int magic = buffer.getInt(offset);
+        if ((magic != RECORD_MAGIC && magic != RECORD_MAGIC_V1) || buffer.getInt(offset + CRC_OFFSET) != checksum(offset)) {
+            return null;
+        }
+        int typeOffset = magic == RECORD_MAGIC ? TYPE_OFFSET : TYPE_OFFSET_V1;
+        int typeLength = buffer.get(offset + typeOffset);
+        if (typeLength < 0 || typeOffset + 1 + typeLength > CRC_OFFSET) {
+            return null;
+        }
+        byte[] typeBytes = new byte[typeLength];
+        buffer.get(offset + typeOffset + 1, typeBytes);
+        return new Entry(buffer.getLong(offset + 4), buffer.getInt(offset + 12), buffer.getInt(offset + 16),
+                new String(typeBytes, StandardCharsets.UTF_8), buffer.getLong(offset + 20),
+                magic == RECORD_MAGIC ? buffer.getInt(offset + USER_OFFSET) : 0);
+    }
+
+    private int checksum(int offset) {
+        CRC32 crc = new CRC32();
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + CRC_OFFSET);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    // Flush what is left and release the file
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flushQuietly();
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Mapped buffer already forced
+        }
+    }
+}
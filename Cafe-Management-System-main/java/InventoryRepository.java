@@ -0,0 +1,186 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InventoryRepository {
+    private static final String INSERT = "INSERT INTO inventory_transactions (item_id, quantity, transaction_type, transaction_date, user_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String FIND_USAGE = "SELECT id, item_id, quantity, transaction_date FROM inventory_transactions " +
+            "WHERE id > ? AND transaction_date >= ? AND transaction_type IN ('Order Deduction', 'Remove Stock') ORDER BY id LIMIT ?";
+
+    // One inventory_transactions row to be written
+    public static final class Transaction {
+        private final int itemId;
+        private final int quantity;
+        private final String type;
+        private final Timestamp date;
+        private final Integer userId;
+
+        // userId is the user who made the change, or null
+        public Transaction(int itemId, int quantity, String type, Timestamp date, Integer userId) {
+            this.itemId = itemId;
+            this.quantity = quantity;
+            this.type = type;
+            this.date = date;
+            this.userId = userId;
+        }
+    }
+
+    // One inventory_transactions row as shown in the history table
+    public static final class HistoryEntry {
+        private final int id;
+        private final String itemName;
+        private final int quantity;
+        private final String type;
+        private final Timestamp date;
+
+        HistoryEntry(int id, String itemName, int quantity, String type, Timestamp date) {
+            this.id = id;
+            this.itemName = itemName;
+            this.quantity = quantity;
+            this.type = type;
+            this.date = date;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Timestamp getDate() {
+            return date;
+        }
+    }
+
+    // Stock taken out by a sale or a manual removal
+    public static final class Usage {
+        private final int id;
+        private final int itemId;
+        private final int quantity;
+        private final Timestamp date;
+
+        Usage(int id, int itemId, int quantity, Timestamp date) {
+            this.id = id;
+            this.itemId = itemId;
+            this.quantity = quantity;
+            this.date = date;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getItemId() {
+            return itemId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public Timestamp getDate() {
+            return date;
+        }
+    }
+
+    public void insert(Connection conn, Transaction transaction) throws SQLException {
+        List<Transaction> single = new ArrayList<>(1);
+        single.add(transaction);
+        insertAll(conn, single);
+    }
+
+    // Insert transactions in one batch
+    public void insertAll(Connection conn, List<Transaction> transactions) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            for (Transaction transaction : transactions) {
+                ps.setInt(1, transaction.itemId);
+                ps.setInt(2, transaction.quantity);
+                ps.setString(3, transaction.type);
+                ps.setTimestamp(4, transaction.date);
+                if (transaction.userId != null) {
+                    ps.setInt(5, transaction.userId);
+                } else {
+                    ps.setNull(5, Types.INTEGER);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Newest-first page of history after the given entry, using a keyset on (transaction_date, id).
+    // Null filter arguments match everything.
+    public List<HistoryEntry> findHistory(Connection conn, Integer itemId, String type, LocalDate from, LocalDate toExclusive,
+                                          HistoryEntry after, int limit) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT t.id, t.quantity, t.transaction_type, t.transaction_date, m.name " +
+                "FROM inventory_transactions t LEFT JOIN menu_items m ON t.item_id = m.id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (itemId != null) {
+            query.append(" AND t.item_id = ?");
+            params.add(itemId);
+        }
+        if (type != null) {
+            query.append(" AND t.transaction_type = ?");
+            params.add(type);
+        }
+        if (from != null) {
+            query.append(" AND t.transaction_date >= ?");
+            params.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (toExclusive != null) {
+            query.append(" AND t.transaction_date < ?");
+            params.add(Timestamp.valueOf(toExclusive.atStartOfDay()));
+        }
+        if (after != null) {
+            query.append(" AND (t.transaction_date < ? OR (t.transaction_date = ? AND t.id < ?))");
+            params.add(after.date);
+            params.add(after.date);
+            params.add(after.id);
+        }
+        query.append(" ORDER BY t.transaction_date DESC, t.id DESC LIMIT ?");
+        params.add(limit);
+
+        // Only placeholders vary, so each filter combination is one cacheable statement
+        List<HistoryEntry> page = new ArrayList<>(limit);
+        try (PreparedStatement ps = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("name");
+                    page.add(new HistoryEntry(rs.getInt("id"), name != null ? name : "(deleted)", rs.getInt("quantity"),
+                            rs.getString("transaction_type"), rs.getTimestamp("transaction_date")));
+                }
+            }
+        }
+        return page;
+    }
+
+    // Up to limit sales and removals with ids above afterId dated since or later, in id order
+    public List<Usage> findUsage(Connection conn, int afterId, Timestamp since, int limit) throws SQLException {
+        List<Usage> page = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(FIND_USAGE)) {
+            ps.setInt(1, afterId);
+            ps.setTimestamp(2, since);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    page.add(new Usage(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getTimestamp(4)));
+                }
+            }
+        }
+        return page;
+    }
+}
@@ -1,15 +1,29 @@
 import javax.swing.*;
 import java.awt.*;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.function.Supplier;
 
 public class InventoryTracking {
-    private Connection conn;
+    private DbExecutor db;
+    private MenuCatalog catalog;
+    private InventoryJournal journal;
+    private Supplier<SessionManager.Principal> currentUser;
+    private final MenuRepository menuRepository = new MenuRepository();
+    private final InventoryRepository inventoryRepository = new InventoryRepository();
     private JFrame frame;
 
-    // Constructor
-    public InventoryTracking(Connection conn, JFrame frame) {
-        this.conn = conn;
+    // Constructor; journal may be null to insert transactions directly
+    public InventoryTracking(DbExecutor db, MenuCatalog catalog, InventoryJournal journal, Supplier<SessionManager.Principal> currentUser,
+                             JFrame frame) {
+        this.db = db;
+        this.catalog = catalog;
+        this.journal = journal;
+        this.currentUser = currentUser;
         this.frame = frame;
     }
 
@@ -20,67 +34,116 @@ public class InventoryTracking {
         JTextField quantityField = new JTextField(5);
         JComboBox<String> transactionTypeCombo = new JComboBox<>(new String[]{"Add Stock", "Remove Stock"});
         JButton updateStockButton = new JButton("Update Stock");
+        JTextField reorderPointField = new JTextField(5);
+        JButton setReorderPointButton = new JButton("Set Reorder Point");
         DefaultListModel<String> inventoryListModel = new DefaultListModel<>();
         JList<String> inventoryList = new JList<>(inventoryListModel);
-        DefaultListModel<String> transactionListModel = new DefaultListModel<>();
-        JList<String> transactionList = new JList<>(transactionListModel);
+        BusyPanel busyPanel = new BusyPanel();
+        TransactionHistoryModel transactionModel = new TransactionHistoryModel(db, busyPanel, 200);
+        JTable transactionTable = new JTable(transactionModel);
+        JComboBox<String> filterItemCombo = new JComboBox<>(new String[]{"All Items"});
+        JComboBox<String> filterTypeCombo = new JComboBox<>(new String[]{"All Types", "Add Stock", "Remove Stock", "Order Deduction"});
+        JTextField filterFromField = new JTextField(8);
+        JTextField filterToField = new JTextField(8);
+        JButton applyFilterButton = new JButton("Apply Filter");
 
-        // Load menu items into combo box
-        refreshInventoryList(inventoryListModel, itemCombo);
+        // Load menu items into combo box, and reload whenever stock or the menu changes
+        refreshInventoryList(inventoryListModel, itemCombo, filterItemCombo, busyPanel);
+        catalog.addListener(() -> SwingUtilities.invokeLater(() -> refreshInventoryList(inventoryListModel, itemCombo, filterItemCombo, busyPanel)));
+
+        // Load the newest page of transaction history; older pages load as the table scrolls
+        transactionModel.refresh();
+
+        // Filter transaction history
+        applyFilterButton.addActionListener(e -> {
+            String selectedItem = (String) filterItemCombo.getSelectedItem();
+            Integer itemId = selectedItem == null || filterItemCombo.getSelectedIndex() == 0
+                    ? null : Integer.parseInt(selectedItem.split(":")[0]);
+            String type = filterTypeCombo.getSelectedIndex() == 0 ? null : (String) filterTypeCombo.getSelectedItem();
+            try {
+                String fromText = filterFromField.getText().trim();
+                String toText = filterToField.getText().trim();
+                LocalDate from = fromText.isEmpty() ? null : LocalDate.parse(fromText);
+                LocalDate toExclusive = toText.isEmpty() ? null : LocalDate.parse(toText).plusDays(1);
+                transactionModel.setFilter(new TransactionHistoryModel.Filter(itemId, type, from, toExclusive));
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(frame, "Invalid date, use yyyy-MM-dd");
+            }
+        });
 
         // Update stock
         updateStockButton.addActionListener(e -> {
             String selectedItem = (String) itemCombo.getSelectedItem();
             String quantityText = quantityField.getText();
             String transactionType = (String) transactionTypeCombo.getSelectedItem();
+            int quantity;
             try {
-                int quantity = Integer.parseInt(quantityText);
-                if (quantity <= 0) {
-                    JOptionPane.showMessageDialog(frame, "Quantity must be positive");
-                    return;
-                }
-                int itemId = Integer.parseInt(selectedItem.split(":")[0]);
-                int quantityChange = transactionType.equals("Add Stock") ? quantity : -quantity;
-
+                quantity = Integer.parseInt(quantityText);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(frame, "Invalid quantity");
+                return;
+            }
+            if (quantity <= 0) {
+                JOptionPane.showMessageDialog(frame, "Quantity must be positive");
+                return;
+            }
+            if (selectedItem == null) {
+                return;
+            }
+            int itemId = Integer.parseInt(selectedItem.split(":")[0]);
+            int quantityChange = transactionType.equals("Add Stock") ? quantity : -quantity;
+            SessionManager.Principal user = currentUser.get();
+            Integer userId = user != null ? user.getId() : null;
+            db.submit(busyPanel, "Updating stock...", conn -> {
                 // Update stock in menu_items
-                String updateQuery = "UPDATE menu_items SET stock_quantity = stock_quantity + ? WHERE id = ?";
-                PreparedStatement ps = conn.prepareStatement(updateQuery);
-                ps.setInt(1, quantityChange);
-                ps.setInt(2, itemId);
-                ps.executeUpdate();
+                MenuCatalog.Snapshot before = catalog.cached();
+                menuRepository.adjustStock(conn, itemId, quantityChange);
 
                 // Log transaction
-                String transactionQuery = "INSERT INTO inventory_transactions (item_id, quantity, transaction_type, transaction_date) VALUES (?, ?, ?, ?)";
-                PreparedStatement transactionPs = conn.prepareStatement(transactionQuery);
-                transactionPs.setInt(1, itemId);
-                transactionPs.setInt(2, quantity);
-                transactionPs.setString(3, transactionType);
-                transactionPs.setTimestamp(4, new Timestamp(new Date().getTime()));
-                transactionPs.executeUpdate();
-
-                // Refresh lists
-                refreshInventoryList(inventoryListModel, itemCombo);
-                refreshTransactionList(transactionListModel);
-                quantityField.setText("");
-
-                // Check for low stock
-                String checkQuery = "SELECT stock_quantity FROM menu_items WHERE id = ?";
-                PreparedStatement checkPs = conn.prepareStatement(checkQuery);
-                checkPs.setInt(1, itemId);
-                ResultSet rs = checkPs.executeQuery();
-                if (rs.next() && rs.getInt("stock_quantity") < 10) {
-                    JOptionPane.showMessageDialog(frame, "Low stock alert for item ID " + itemId + ": " + rs.getInt("stock_quantity") + " units remaining");
+                Timestamp now = new Timestamp(new Date().getTime());
+                if (journal != null) {
+                    journal.append(itemId, quantity, transactionType, now, userId);
+                } else {
+                    inventoryRepository.insert(conn, new InventoryRepository.Transaction(itemId, quantity, transactionType, now, userId));
                 }
+                // The catalog change also prompts the stock monitor to re-check
+                catalog.applyStockChanges(before, Collections.singletonMap(itemId, quantityChange));
+                return itemId;
+            }, updated -> {
+                // Refresh transactions; the inventory list follows the catalog
+                transactionModel.refresh();
+                quantityField.setText("");
+            }, ex -> JOptionPane.showMessageDialog(frame, "Error updating stock: " + ex.getMessage()));
+        });
 
+        // Set the stock level at which the selected item raises a low-stock alert
+        setReorderPointButton.addActionListener(e -> {
+            String selectedItem = (String) itemCombo.getSelectedItem();
+            int reorderPoint;
+            try {
+                reorderPoint = Integer.parseInt(reorderPointField.getText().trim());
             } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(frame, "Invalid quantity");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error updating stock: " + ex.getMessage());
+                JOptionPane.showMessageDialog(frame, "Invalid reorder point");
+                return;
+            }
+            if (reorderPoint < 0) {
+                JOptionPane.showMessageDialog(frame, "Reorder point must not be negative");
+                return;
+            }
+            if (selectedItem == null) {
+                return;
             }
+            int itemId = Integer.parseInt(selectedItem.split(":")[0]);
+            db.submit(busyPanel, "Saving reorder point...", conn -> {
+                int updated = menuRepository.setReorderPoint(conn, itemId, reorderPoint);
+                catalog.invalidate();
+                return updated;
+            }, updated -> reorderPointField.setText(""),
+                    ex -> JOptionPane.showMessageDialog(frame, "Error saving reorder point: " + ex.getMessage()));
         });
 
         // Layout
-        JPanel inputPanel = new JPanel(new GridLayout(4, 2, 5, 5));
+        JPanel inputPanel = new JPanel(new GridLayout(6, 2, 5, 5));
         inputPanel.add(new JLabel("Select Item:"));
         inputPanel.add(itemCombo);
         inputPanel.add(new JLabel("Quantity:"));
@@ -89,51 +152,56 @@ public class InventoryTracking {
         inputPanel.add(transactionTypeCombo);
         inputPanel.add(new JLabel(""));
         inputPanel.add(updateStockButton);
+        inputPanel.add(new JLabel("Reorder Point:"));
+        inputPanel.add(reorderPointField);
+        inputPanel.add(new JLabel(""));
+        inputPanel.add(setReorderPointButton);
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Item:"));
+        filterPanel.add(filterItemCombo);
+        filterPanel.add(new JLabel("Type:"));
+        filterPanel.add(filterTypeCombo);
+        filterPanel.add(new JLabel("From:"));
+        filterPanel.add(filterFromField);
+        filterPanel.add(new JLabel("To:"));
+        filterPanel.add(filterToField);
+        filterPanel.add(applyFilterButton);
+
+        JPanel transactionPanel = new JPanel(new BorderLayout());
+        transactionPanel.add(filterPanel, BorderLayout.NORTH);
+        transactionPanel.add(new JScrollPane(transactionTable), BorderLayout.CENTER);
 
         JPanel listPanel = new JPanel(new GridLayout(1, 2));
         listPanel.add(new JScrollPane(inventoryList));
-        listPanel.add(new JScrollPane(transactionList));
+        listPanel.add(transactionPanel);
 
-        panel.add(inputPanel, BorderLayout.NORTH);
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(inputPanel, BorderLayout.CENTER);
+        northPanel.add(busyPanel, BorderLayout.SOUTH);
+
+        panel.add(northPanel, BorderLayout.NORTH);
         panel.add(listPanel, BorderLayout.CENTER);
         return panel;
     }
 
     // Refresh inventory list and combo box
-    private void refreshInventoryList(DefaultListModel<String> inventoryListModel, JComboBox<String> itemCombo) {
-        inventoryListModel.clear();
-        itemCombo.removeAllItems();
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT id, name, stock_quantity FROM menu_items");
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                int stock = rs.getInt("stock_quantity");
-                String item = id + ": " + name + " (Stock: " + stock + ")";
-                inventoryListModel.addElement(item);
-                itemCombo.addItem(item);
+    private void refreshInventoryList(DefaultListModel<String> inventoryListModel, JComboBox<String> itemCombo,
+                                      JComboBox<String> filterItemCombo, BusyPanel busyPanel) {
+        db.submit(busyPanel, "Loading inventory...", conn -> new ArrayList<>(catalog.snapshot(conn).items()), items -> {
+            Object selectedFilter = filterItemCombo.getSelectedItem();
+            inventoryListModel.clear();
+            itemCombo.removeAllItems();
+            while (filterItemCombo.getItemCount() > 1) {
+                filterItemCombo.removeItemAt(1);
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading inventory: " + e.getMessage());
-        }
-    }
-
-    // Refresh transaction list
-    private void refreshTransactionList(DefaultListModel<String> transactionListModel) {
-        transactionListModel.clear();
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT t.id, t.item_id, t.quantity, t.transaction_type, t.transaction_date, m.name " +
-                    "FROM inventory_transactions t JOIN menu_items m ON t.item_id = m.id " +
-                    "ORDER BY t.transaction_date DESC");
-            while (rs.next()) {
-                transactionListModel.addElement("ID: " + rs.getInt("id") + ", Item: " + rs.getString("name") +
-                        ", Qty: " + rs.getInt("quantity") + ", Type: " + rs.getString("transaction_type") +
-                        ", Date: " + rs.getTimestamp("transaction_date"));
+            for (MenuItem item : items) {
+                String entry = item.getId() + ": " + item.getName() + " (Stock: " + item.getStockQuantity() + ", reorder at " + item.getReorderPoint() + ")";
+                inventoryListModel.addElement(entry);
+                itemCombo.addItem(entry);
+                filterItemCombo.addItem(item.getId() + ": " + item.getName());
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading transactions: " + e.getMessage());
-        }
+            filterItemCombo.setSelectedItem(selectedFilter);
+        }, ex -> JOptionPane.showMessageDialog(frame, "Error loading inventory: " + ex.getMessage()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,411 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+
+// Best sellers, revenue by category and frequently-bought-together pairs over OrderItemColumns.
+// Both passes split the orders across a fork/join pool, and workers never contend on a shared counter.
+// Totals are small, so each task counts into arrays of its own that are added together as tasks join.
+// A pair triangle can run to megabytes, so each worker thread keeps one for all its tasks instead.
+public class ItemAnalytics {
+    // Pairs are counted in a triangular matrix over at most this many items, the most ordered first
+    static final int MAX_PAIR_ITEMS = 2048;
+    private static final int MIN_ORDERS_PER_TASK = 2048;
+
+    private final MenuCatalog catalog;
+    private final ForkJoinPool pool;
+
+    // Sales of one item over the range
+    public static final class ItemStat {
+        private final int itemId;
+        private final String name;
+        private final String category;
+        private final long units;
+        private final int orders;
+        private final long revenueMinor;
+
+        ItemStat(int itemId, String name, String category, long units, int orders, long revenueMinor) {
+            this.itemId = itemId;
+            this.name = name;
+            this.category = category;
+            this.units = units;
+            this.orders = orders;
+            this.revenueMinor = revenueMinor;
+        }
+
+        public int getItemId() {
+            return itemId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        // Orders containing the item
+        public int getOrders() {
+            return orders;
+        }
+
+        public long getRevenueMinor() {
+            return revenueMinor;
+        }
+    }
+
+    // Sales of one menu category over the range
+    public static final class CategoryStat {
+        private final String category;
+        private long units;
+        private long revenueMinor;
+
+        CategoryStat(String category) {
+            this.category = category;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public long getRevenueMinor() {
+            return revenueMinor;
+        }
+    }
+
+    // Two items bought in the same order
+    public static final class PairStat {
+        private final ItemStat first;
+        private final ItemStat second;
+        private final int orders;
+        private final double lift;
+
+        PairStat(ItemStat first, ItemStat second, int orders, double lift) {
+            this.first = first;
+            this.second = second;
+            this.orders = orders;
+            this.lift = lift;
+        }
+
+        public ItemStat getFirst() {
+            return first;
+        }
+
+        public ItemStat getSecond() {
+            return second;
+        }
+
+        // Orders containing both items
+        public int getOrders() {
+            return orders;
+        }
+
+        // How much more often the two are bought together than if they were independent (1.0 = no affinity)
+        public double getLift() {
+            return lift;
+        }
+    }
+
+    public static final class Result {
+        private final int orderCount;
+        private final int lineCount;
+        private final List<ItemStat> items;
+        private final List<CategoryStat> categories;
+        private final List<PairStat> pairs;
+        private final long elapsedMillis;
+
+        Result(int orderCount, int lineCount, List<ItemStat> items, List<CategoryStat> categories, List<PairStat> pairs, long elapsedMillis) {
+            this.orderCount = orderCount;
+            this.lineCount = lineCount;
+            this.items = Collections.unmodifiableList(items);
+            this.categories = Collections.unmodifiableList(categories);
+            this.pairs = Collections.unmodifiableList(pairs);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        public int getLineCount() {
+            return lineCount;
+        }
+
+        // Every item sold, most units first
+        public List<ItemStat> getItems() {
+            return items;
+        }
+
+        // Every category, most revenue first
+        public List<CategoryStat> getCategories() {
+            return categories;
+        }
+
+        // Most frequent pairs, most orders first
+        public List<PairStat> getPairs() {
+            return pairs;
+        }
+
+        // Load and computation time
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    // Constructor; names and categories come from the catalog
+    public ItemAnalytics(MenuCatalog catalog, ForkJoinPool pool) {
+        this.catalog = catalog;
+        this.pool = pool;
+    }
+
+    // Load order lines dated [from, toExclusive) and analyse them, keeping the topPairs most frequent pairs
+    public Result analyze(Connection conn, LocalDate from, LocalDate toExclusive, int topPairs) throws SQLException {
+        long start = System.nanoTime();
+        OrderItemColumns columns = OrderItemColumns.load(conn, from, toExclusive);
+        MenuCatalog.Snapshot menu = catalog.snapshot(conn);
+        return compute(columns, menu::get, topPairs, start);
+    }
+
+    // As above, reading days before the archive's end day from the archive and only later days from the
+    // database; conn is not used, and may be null, when the archive covers the whole range
+    public Result analyze(Connection conn, LocalDate from, LocalDate toExclusive, OrderArchive.Snapshot archive, int topPairs) throws SQLException {
+        long start = System.nanoTime();
+        OrderItemColumns columns = archive.columns(from, toExclusive);
+        LocalDate liveFrom = from.isAfter(archive.getEndDay()) ? from : archive.getEndDay();
+        if (!liveFrom.isBefore(toExclusive)) {
+            return compute(columns, archive::getItem, topPairs, start);
+        }
+        columns = OrderItemColumns.concat(columns, OrderItemColumns.load(conn, liveFrom, toExclusive));
+        MenuCatalog.Snapshot menu = catalog.snapshot(conn);
+        // Items deleted from the menu keep the name they had when archived
+        return compute(columns, id -> menu.get(id) != null ? menu.get(id) : archive.getItem(id), topPairs, start);
+    }
+
+    // Analyse lines already loaded; menu resolves ids to names and categories (null for deleted items)
+    Result compute(OrderItemColumns columns, IntFunction<MenuItem> menu, int topPairs, long startNanos) {
+        int orders = columns.getOrderCount();
+        int threshold = Math.max(MIN_ORDERS_PER_TASK, orders / (pool.getParallelism() * 4));
+        Totals totals = pool.invoke(new TotalsTask(columns, 0, orders, threshold));
+
+        List<ItemStat> items = new ArrayList<>(columns.getItemCount());
+        ItemStat[] byDense = new ItemStat[columns.getItemCount()];
+        for (int i = 0; i < byDense.length; i++) {
+            int itemId = columns.itemIds[i];
+            MenuItem item = menu.apply(itemId);
+            byDense[i] = new ItemStat(itemId, item != null ? item.getName() : "Item " + itemId, item != null ? item.getCategory() : "(removed)",
+                    totals.units[i], totals.orders[i], totals.revenue[i]);
+            items.add(byDense[i]);
+        }
+        items.sort((a, b) -> a.units != b.units ? Long.compare(b.units, a.units) : Long.compare(b.revenueMinor, a.revenueMinor));
+
+        Map<String, CategoryStat> byCategory = new LinkedHashMap<>();
+        for (ItemStat item : items) {
+            CategoryStat category = byCategory.computeIfAbsent(item.category, CategoryStat::new);
+            category.units += item.units;
+            category.revenueMinor += item.revenueMinor;
+        }
+        List<CategoryStat> categories = new ArrayList<>(byCategory.values());
+        categories.sort((a, b) -> Long.compare(b.revenueMinor, a.revenueMinor));
+
+        List<PairStat> pairs = topPairs > 0 ? pairs(columns, byDense, totals, topPairs, threshold) : new ArrayList<>();
+        return new Result(orders, columns.getLineCount(), items, categories, pairs, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private List<PairStat> pairs(OrderItemColumns columns, ItemStat[] byDense, Totals totals, int topPairs, int threshold) {
+        // Pair slots for the items in the most orders; the rest are left out once there are too many
+        Integer[] ranked = new Integer[byDense.length];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, (a, b) -> Integer.compare(totals.orders[b], totals.orders[a]));
+        int slots = Math.min(ranked.length, MAX_PAIR_ITEMS);
+        int[] slotByDense = new int[byDense.length];
+        int[] denseBySlot = new int[slots];
+        Arrays.fill(slotByDense, -1);
+        for (int s = 0; s < slots; s++) {
+            slotByDense[ranked[s]] = s;
+            denseBySlot[s] = ranked[s];
+        }
+        if (slots < 2) {
+            return new ArrayList<>();
+        }
+        Map<Thread, int[]> perWorker = new ConcurrentHashMap<>();
+        pool.invoke(new PairTask(columns, slotByDense, slots, perWorker, 0, columns.getOrderCount(), threshold));
+        int[] triangle = null;
+        for (int[] counts : perWorker.values()) {
+            if (triangle == null) {
+                triangle = counts;
+            } else {
+                for (int i = 0; i < triangle.length; i++) {
+                    triangle[i] += counts[i];
+                }
+            }
+        }
+
+        // Keep the topPairs largest counts; pairs seen in a single order are noise
+        PriorityQueue<long[]> top = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        for (int hi = 1; hi < slots; hi++) {
+            int base = hi * (hi - 1) / 2;
+            for (int lo = 0; lo < hi; lo++) {
+                int count = triangle[base + lo];
+                if (count >= 2 && (top.size() < topPairs || count > top.peek()[0])) {
+                    top.add(new long[]{count, lo, hi});
+                    if (top.size() > topPairs) {
+                        top.poll();
+                    }
+                }
+            }
+        }
+        List<PairStat> pairs = new ArrayList<>(top.size());
+        double orders = columns.getOrderCount();
+        for (long[] entry : top) {
+            ItemStat first = byDense[denseBySlot[(int) entry[1]]];
+            ItemStat second = byDense[denseBySlot[(int) entry[2]]];
+            double lift = entry[0] * orders / ((double) first.orders * second.orders);
+            pairs.add(new PairStat(first, second, (int) entry[0], lift));
+        }
+        pairs.sort((a, b) -> a.orders != b.orders ? Integer.compare(b.orders, a.orders) : Double.compare(b.lift, a.lift));
+        return pairs;
+    }
+
+    // Per-item sums for a range of orders
+    private static final class Totals {
+        private final long[] units;
+        private final long[] revenue;
+        private final int[] orders;
+
+        Totals(int items) {
+            units = new long[items];
+            revenue = new long[items];
+            orders = new int[items];
+        }
+
+        void add(Totals other) {
+            for (int i = 0; i < units.length; i++) {
+                units[i] += other.units[i];
+                revenue[i] += other.revenue[i];
+                orders[i] += other.orders[i];
+            }
+        }
+    }
+
+    private static final class TotalsTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+        private final OrderItemColumns columns;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        TotalsTask(OrderItemColumns columns, int from, int to, int threshold) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                TotalsTask left = new TotalsTask(columns, from, mid, threshold);
+                left.fork();
+                Totals right = new TotalsTask(columns, mid, to, threshold).compute();
+                Totals result = left.join();
+                result.add(right);
+                return result;
+            }
+            int items = columns.getItemCount();
+            Totals totals = new Totals(items);
+            // Order number + 1 that last counted each item, so an item listed twice in one order counts once
+            int[] seenIn = new int[items];
+            for (int order = from; order < to; order++) {
+                for (int line = columns.orderStart[order]; line < columns.orderStart[order + 1]; line++) {
+                    int item = columns.item[line];
+                    totals.units[item] += columns.quantity[line];
+                    totals.revenue[item] += columns.revenueMinor[line];
+                    if (seenIn[item] != order + 1) {
+                        seenIn[item] = order + 1;
+                        totals.orders[item]++;
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+
+    // Orders containing each pair of slots, as a lower triangle: pair (lo, hi) is at hi * (hi - 1) / 2 + lo.
+    // Counts go into the running thread's triangle in perWorker; a leaf never forks, so no two leaves
+    // use one triangle at the same time.
+    private static final class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final OrderItemColumns columns;
+        private final int[] slotByDense;
+        private final int slots;
+        private final Map<Thread, int[]> perWorker;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        PairTask(OrderItemColumns columns, int[] slotByDense, int slots, Map<Thread, int[]> perWorker, int from, int to, int threshold) {
+            this.columns = columns;
+            this.slotByDense = slotByDense;
+            this.slots = slots;
+            this.perWorker = perWorker;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PairTask(columns, slotByDense, slots, perWorker, from, mid, threshold),
+                        new PairTask(columns, slotByDense, slots, perWorker, mid, to, threshold));
+                return;
+            }
+            int[] triangle = perWorker.computeIfAbsent(Thread.currentThread(), t -> new int[slots * (slots - 1) / 2]);
+            int[] seenIn = new int[slots];
+            int[] basket = new int[16];
+            for (int order = from; order < to; order++) {
+                int size = 0;
+                for (int line = columns.orderStart[order]; line < columns.orderStart[order + 1]; line++) {
+                    int slot = slotByDense[columns.item[line]];
+                    if (slot >= 0 && seenIn[slot] != order + 1) {
+                        seenIn[slot] = order + 1;
+                        if (size == basket.length) {
+                            basket = Arrays.copyOf(basket, size * 2);
+                        }
+                        basket[size++] = slot;
+                    }
+                }
+                for (int i = 1; i < size; i++) {
+                    for (int j = 0; j < i; j++) {
+                        int hi = Math.max(basket[i], basket[j]);
+                        int lo = Math.min(basket[i], basket[j]);
+                        triangle[hi * (hi - 1) / 2 + lo]++;
+                    }
+                }
+            }
+        }
+    }
+}
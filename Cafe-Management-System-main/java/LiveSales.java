@@ -0,0 +1,115 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Running totals for today's orders, updated one receipt at a time from the order event stream.
+// Each receipt costs a few additions, so the dashboard never has to re-read orders from the
+// database. Not thread-safe: one consumer feeds and reads it (the dashboard's timer on the EDT).
+public class LiveSales {
+    private LocalDate day;
+    private final long[] revenueByHour = new long[24];
+    private final int[] ordersByHour = new int[24];
+    private int orderCount;
+    private long revenueMinor;
+    private final Map<Integer, ItemSales> items = new HashMap<>();
+
+    // Units and revenue for one menu item today
+    public static final class ItemSales {
+        private final int itemId;
+        private String name;
+        private int quantity;
+        private long revenueMinor;
+
+        ItemSales(int itemId, String name) {
+            this.itemId = itemId;
+            this.name = name;
+        }
+
+        public int getItemId() {
+            return itemId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public long getRevenueMinor() {
+            return revenueMinor;
+        }
+    }
+
+    // Count a committed order; orders from an earlier day are ignored once the day has rolled over
+    public void add(BillingService.Receipt receipt) {
+        LocalDateTime at = receipt.getOrderDate().toLocalDateTime();
+        rollTo(at.toLocalDate());
+        if (at.toLocalDate().isBefore(day)) {
+            return;
+        }
+        int hour = at.getHour();
+        revenueByHour[hour] += receipt.getTotalMinor();
+        ordersByHour[hour]++;
+        revenueMinor += receipt.getTotalMinor();
+        orderCount++;
+        for (OrderLine line : receipt.getOrder().getLines()) {
+            ItemSales item = items.computeIfAbsent(line.getItemId(), id -> new ItemSales(id, line.getName()));
+            item.name = line.getName();
+            item.quantity += line.getQuantity();
+            item.revenueMinor += line.getLineTotalMinor();
+        }
+    }
+
+    // Start a fresh day at midnight; returns true if the totals were reset
+    public boolean rollTo(LocalDate today) {
+        if (day != null && !today.isAfter(day)) {
+            return false;
+        }
+        boolean reset = day != null;
+        day = today;
+        Arrays.fill(revenueByHour, 0);
+        Arrays.fill(ordersByHour, 0);
+        orderCount = 0;
+        revenueMinor = 0;
+        items.clear();
+        return reset;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public long getRevenueMinor() {
+        return revenueMinor;
+    }
+
+    // Mean order total, rounded down to the paisa
+    public long getAverageTicketMinor() {
+        return orderCount == 0 ? 0 : revenueMinor / orderCount;
+    }
+
+    public long getRevenueMinor(int hour) {
+        return revenueByHour[hour];
+    }
+
+    public int getOrderCount(int hour) {
+        return ordersByHour[hour];
+    }
+
+    // The n best sellers by units, then revenue; entries are live and change with later orders
+    public List<ItemSales> topSellers(int n) {
+        List<ItemSales> sorted = new ArrayList<>(items.values());
+        sorted.sort((a, b) -> a.quantity != b.quantity ? Integer.compare(b.quantity, a.quantity) : Long.compare(b.revenueMinor, a.revenueMinor));
+        return sorted.size() > n ? sorted.subList(0, n) : sorted;
+    }
+}
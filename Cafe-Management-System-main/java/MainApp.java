@@ -4,79 +4,181 @@ import java.sql.*;
 
 public class MainApp {
     private JFrame frame;
-    private Connection conn;
+    private ConnectionPool pool;
+    private QueryMetrics queryMetrics;
+    private DbExecutor db;
+    private SettingsService settingsService;
+    private SessionManager sessionManager;
+    private MenuCatalog menuCatalog;
+    private SalesRollup salesRollup;
+    private ItemAnalytics itemAnalytics;
+    private OrderArchive orderArchive;
+    private StockLedger stockLedger;
+    private StockMonitor stockMonitor;
+    private InventoryJournal inventoryJournal;
+    private OrderEventStream orderEvents;
+    private BillingService billingService;
+    private OrderIngestServer ingestServer;
     private UserManagement userManagement;
     private MenuManagement menuManagement;
     private OrderBilling orderBilling;
     private InventoryTracking inventoryTracking;
     private ReportAnalysis reportAnalysis;
+    private SalesDashboard salesDashboard;
+    private JLabel stockAlertLabel;
+
+    private final boolean headless;
 
     public MainApp() {
+        this(false);
+    }
+
+    // Headless mode serves terminals over HTTP only, with no Swing UI
+    public MainApp(boolean headless) {
+        this.headless = headless;
         initializeDatabase();
-        initializeUI();
+        if (headless || Integer.getInteger("cafe.ingest.port") != null) {
+            startIngestServer();
+        }
+        if (!headless) {
+            initializeUI();
+        } else {
+            stockMonitor.addListener(alerts -> alerts.forEach(alert -> System.out.println("Low stock: " + alert.describe())));
+        }
+        // Low-stock checks every cafe.stock.checkSeconds, and after every stock change; started once alerts have somewhere to go
+        stockMonitor.start(Long.getLong("cafe.stock.checkSeconds", 60L) * 1000);
     }
 
-    // Initialize MySQL database connection
+    // Initialize the connection pool for the configured backend (see cafe.properties.example)
     private void initializeDatabase() {
+        DatabaseConfig config;
         try {
-            String url = "jdbc:mysql://localhost:3306/cafe_db?useSSL=false";
-            String user = "root";
-            String password = "DeerajMysql"; // Replace with your MySQL password
-            conn = DriverManager.getConnection(url, user, password);
-            createTables();
+            config = DatabaseConfig.load();
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            reportError("Invalid database configuration: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        try {
+            queryMetrics = openQueryMetrics();
+            pool = new ConnectionPool(config.getUrl(), config.getUser(), config.getPassword(), config.getPoolSize(), 10_000, 300_000, 30_000,
+                    config.getStatementCacheSize(), queryMetrics);
+            db = new DbExecutor(pool);
+            settingsService = new SettingsService();
+            // Sessions end after cafe.session.idleMinutes unused; logged-in accounts are cached for cafe.auth.cacheSeconds
+            sessionManager = new SessionManager(Long.getLong("cafe.session.idleMinutes", 480L) * 60_000,
+                    Long.getLong("cafe.auth.cacheSeconds", 300L) * 1000);
+            menuCatalog = new MenuCatalog();
+            salesRollup = new SalesRollup();
+            // Item analysis splits across cafe.analytics.parallelism workers (default: one per core)
+            itemAnalytics = new ItemAnalytics(menuCatalog, new java.util.concurrent.ForkJoinPool(
+                    Integer.getInteger("cafe.analytics.parallelism", Runtime.getRuntime().availableProcessors())));
+            stockLedger = new StockLedger(menuCatalog, Long.getLong("cafe.stock.holdTimeoutMillis", 15 * 60_000L));
+            inventoryJournal = openInventoryJournal();
+            // Usage averaged over about cafe.stock.usageDays; alerts for items forecast to run out within cafe.stock.forecastHours
+            stockMonitor = new StockMonitor(pool, menuCatalog, Double.parseDouble(System.getProperty("cafe.stock.usageDays", "7")),
+                    Double.parseDouble(System.getProperty("cafe.stock.forecastHours", "24")));
+            orderArchive = openOrderArchive();
+            orderEvents = new OrderEventStream(Integer.getInteger("cafe.events.capacity", 4096));
+            billingService = new BillingService(menuCatalog, salesRollup, stockLedger, inventoryJournal, settingsService, orderEvents);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (ingestServer != null) {
+                    ingestServer.close();
+                }
+                stockLedger.close();
+                stockMonitor.close();
+                if (inventoryJournal != null) {
+                    inventoryJournal.close();
+                }
+                db.close();
+                pool.close();
+                if (queryMetrics != null) {
+                    queryMetrics.close();
+                }
+            }));
+            try (Connection conn = pool.getConnection()) {
+                CafeSchema.migrate(conn, salesRollup);
+                settingsService.load(conn);
+                if (inventoryJournal != null) {
+                    int replayed = inventoryJournal.recover(conn, Long.getLong("cafe.inventory.flushMillis", 1000L));
+                    if (replayed > 0) {
+                        System.out.println("Replayed " + replayed + " inventory transactions from the journal");
+                    }
+                }
+            }
+            // Archive the days closed since the last run
+            if (orderArchive != null) {
+                db.submit(conn -> orderArchive.update(conn, java.time.LocalDate.now()), archived -> { },
+                        ex -> reportError("Order archive update failed: " + ex.getMessage()));
+            }
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Database connection failed: " + e.getMessage());
+            reportError("Database connection failed: " + e.getMessage());
             System.exit(1);
         }
     }
 
-    // Create necessary tables
-    private void createTables() throws SQLException {
-        String userTable = "CREATE TABLE IF NOT EXISTS users (id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50) UNIQUE, password VARCHAR(64), role VARCHAR(20))";
-        String menuTable = "CREATE TABLE IF NOT EXISTS menu_items (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), category VARCHAR(50), price DECIMAL(10,2), available BOOLEAN, stock_quantity INT DEFAULT 100)";
-        String orderTable = "CREATE TABLE IF NOT EXISTS orders (id INT AUTO_INCREMENT PRIMARY KEY, order_type VARCHAR(20), table_number VARCHAR(10), subtotal DECIMAL(10,2), gst DECIMAL(10,2), discount DECIMAL(10,2), total DECIMAL(10,2), order_date DATETIME)";
-        String orderItemTable = "CREATE TABLE IF NOT EXISTS order_items (id INT AUTO_INCREMENT PRIMARY KEY, order_id INT, item_id INT, quantity INT, FOREIGN KEY (order_id) REFERENCES orders(id), FOREIGN KEY (item_id) REFERENCES menu_items(id))";
-        String inventoryTransactionTable = "CREATE TABLE IF NOT EXISTS inventory_transactions (id INT AUTO_INCREMENT PRIMARY KEY, item_id INT, quantity INT, transaction_type VARCHAR(20), transaction_date DATETIME, FOREIGN KEY (item_id) REFERENCES menu_items(id))";
-        String settingsTable = "CREATE TABLE IF NOT EXISTS settings (id INT PRIMARY KEY, cafe_name VARCHAR(100), gst_rate DECIMAL(5,2), currency VARCHAR(10))";
-        Statement stmt = conn.createStatement();
-        stmt.execute(userTable);
-        stmt.execute(menuTable);
-        stmt.execute(orderTable);
-        stmt.execute(orderItemTable);
-        stmt.execute(inventoryTransactionTable);
-        stmt.execute(settingsTable);
+    // Per-statement latency over JMX, logged every cafe.metrics.logSeconds (0 = JMX only); -Dcafe.metrics=false turns it off
+    private QueryMetrics openQueryMetrics() {
+        if (!Boolean.parseBoolean(System.getProperty("cafe.metrics", "true"))) {
+            return null;
+        }
+        QueryMetrics metrics = QueryMetrics.platform();
+        metrics.startLogging(Long.getLong("cafe.metrics.logSeconds", 60L));
+        return metrics;
+    }
 
-        // Insert default admin user
-        String adminQuery = "INSERT IGNORE INTO users (username, password, role) VALUES (?, ?, ?)";
-        PreparedStatement ps = conn.prepareStatement(adminQuery);
-        ps.setString(1, "admin");
-        ps.setString(2, hashPassword("admin123"));
-        ps.setString(3, "Admin");
-        ps.executeUpdate();
+    // Write-behind journal for inventory transactions, enabled by -Dcafe.inventory.journal=<file>
+    private InventoryJournal openInventoryJournal() {
+        String path = System.getProperty("cafe.inventory.journal");
+        if (path == null) {
+            return null;
+        }
+        try {
+            return new InventoryJournal(java.nio.file.Paths.get(path), Integer.getInteger("cafe.inventory.journalBytes", 4 << 20),
+                    pool, Integer.getInteger("cafe.inventory.flushBatch", 500));
+        } catch (java.io.IOException e) {
+            reportError("Inventory journal unavailable, writing transactions directly: " + e.getMessage());
+            return null;
+        }
+    }
 
-        // Insert default settings
-        String settingsQuery = "INSERT IGNORE INTO settings (id, cafe_name, gst_rate, currency) VALUES (1, ?, ?, ?)";
-        PreparedStatement settingsPs = conn.prepareStatement(settingsQuery);
-        settingsPs.setString(1, "Cafe Management System");
-        settingsPs.setDouble(2, 0.05);
-        settingsPs.setString(3, "Rs.");
-        settingsPs.executeUpdate();
+    // Columnar archive of closed days for historical reports, enabled by -Dcafe.archive.dir=<directory>
+    private OrderArchive openOrderArchive() {
+        String path = System.getProperty("cafe.archive.dir");
+        if (path == null) {
+            return null;
+        }
+        try {
+            return OrderArchive.open(java.nio.file.Paths.get(path));
+        } catch (java.io.IOException e) {
+            reportError("Order archive unavailable, reports will read the database: " + e.getMessage());
+            return null;
+        }
     }
 
-    // Hash password using SHA-256
-    private String hashPassword(String password) {
+    // Start the order-ingest endpoint for remote terminals (loopback unless cafe.ingest.host is set)
+    private void startIngestServer() {
+        String host = System.getProperty("cafe.ingest.host", "127.0.0.1");
+        int port = Integer.getInteger("cafe.ingest.port", 8085);
         try {
-            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
+            ingestServer = new OrderIngestServer(pool, menuCatalog, billingService, sessionManager,
+                    Boolean.getBoolean("cafe.ingest.requireLogin"), host, port);
+            ingestServer.start();
+            System.out.println("Order ingest listening on http://" + host + ":" + ingestServer.getPort());
+        } catch (java.io.IOException e) {
+            reportError("Order ingest server failed to start: " + e.getMessage());
+            if (headless) {
+                System.exit(1);
             }
-            return hexString.toString();
-        } catch (java.security.NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hashing error: " + e.getMessage());
+        }
+    }
+
+    // Show an error in a dialog, or on stderr when running without a UI
+    private void reportError(String message) {
+        if (headless) {
+            System.err.println(message);
+        } else {
+            JOptionPane.showMessageDialog(frame, message);
         }
     }
 
@@ -87,11 +189,18 @@ public class MainApp {
         frame.setSize(800, 600);
         frame.setLayout(new BorderLayout());
 
-        userManagement = new UserManagement(conn, frame);
-        menuManagement = new MenuManagement(conn, frame);
-        orderBilling = new OrderBilling(conn, frame);
-        inventoryTracking = new InventoryTracking(conn, frame);
-        reportAnalysis = new ReportAnalysis(conn, frame);
+        userManagement = new UserManagement(db, sessionManager, frame);
+        menuManagement = new MenuManagement(db, menuCatalog, settingsService, frame);
+        orderBilling = new OrderBilling(db, menuCatalog, billingService, stockLedger, settingsService, userManagement::getCurrentUser, frame);
+        inventoryTracking = new InventoryTracking(db, menuCatalog, inventoryJournal, userManagement::getCurrentUser, frame);
+        reportAnalysis = new ReportAnalysis(db, salesRollup, settingsService, itemAnalytics, orderArchive, frame);
+        salesDashboard = new SalesDashboard(orderEvents, stockLedger, settingsService);
+        // Low-stock alerts show in a banner above the tabs instead of interrupting the till
+        stockAlertLabel = new JLabel();
+        stockAlertLabel.setForeground(new Color(0xB00020));
+        stockAlertLabel.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        stockAlertLabel.setVisible(false);
+        stockMonitor.addListener(alerts -> SwingUtilities.invokeLater(() -> showStockAlerts(alerts)));
         JPanel loginPanel = userManagement.showLoginPanel(this::showMainInterface);
         frame.add(loginPanel, BorderLayout.CENTER);
         frame.setVisible(true);
@@ -105,15 +214,30 @@ public class MainApp {
             tabbedPane.addTab("User Management", userManagement.createUserManagementPanel());
             tabbedPane.addTab("Inventory Tracking", inventoryTracking.createInventoryTrackingPanel());
             tabbedPane.addTab("Report Analysis", reportAnalysis.createReportAnalysisPanel());
+            tabbedPane.addTab("Live Sales", salesDashboard.createSalesDashboardPanel());
         }
         tabbedPane.addTab("Menu Management", menuManagement.createMenuManagementPanel());
         tabbedPane.addTab("Order & Billing", orderBilling.createOrderBillingPanel());
+        frame.add(stockAlertLabel, BorderLayout.NORTH);
         frame.add(tabbedPane, BorderLayout.CENTER);
         frame.revalidate();
         frame.repaint();
     }
 
+    private void showStockAlerts(java.util.List<StockMonitor.Alert> alerts) {
+        StringBuilder text = new StringBuilder("<html>Low stock: ");
+        for (int i = 0; i < alerts.size(); i++) {
+            text.append(i > 0 ? "; " : "").append(alerts.get(i).describe().replace("&", "&amp;").replace("<", "&lt;"));
+        }
+        stockAlertLabel.setText(text.append("</html>").toString());
+        stockAlertLabel.setVisible(!alerts.isEmpty());
+    }
+
     public static void main(String[] args) {
+        if (java.util.Arrays.asList(args).contains("--headless")) {
+            new MainApp(true);
+            return;
+        }
         SwingUtilities.invokeLater(MainApp::new);
     }
 }
\ No newline at end of file
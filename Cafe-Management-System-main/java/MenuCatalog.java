@@ -0,0 +1,100 @@
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MenuCatalog {
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final MenuRepository menuRepository = new MenuRepository();
+
+    // Immutable view of menu_items at one catalog version
+    public static final class Snapshot {
+        private final long version;
+        private final Map<Integer, MenuItem> items;
+
+        private Snapshot(long version, Map<Integer, MenuItem> items) {
+            this.version = version;
+            this.items = Collections.unmodifiableMap(items);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public MenuItem get(int id) {
+            return items.get(id);
+        }
+
+        // All items in id order
+        public Collection<MenuItem> items() {
+            return items.values();
+        }
+    }
+
+    // Current snapshot, reloading through conn only if a write invalidated it
+    public Snapshot snapshot(Connection conn) throws SQLException {
+        Snapshot current = snapshot;
+        long version = generation.get();
+        if (current != null && current.version == version) {
+            return current;
+        }
+        Map<Integer, MenuItem> items = menuRepository.findAll(conn);
+        // Stamped with the version read before loading, so a concurrent write leaves it stale
+        Snapshot loaded = new Snapshot(version, items);
+        synchronized (this) {
+            if (snapshot == null || snapshot.version <= version) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    // Cached snapshot if still current, otherwise null
+    public Snapshot cached() {
+        Snapshot current = snapshot;
+        return current != null && current.version == generation.get() ? current : null;
+    }
+
+    // Mark the cache stale after a write to menu_items and tell subscribers
+    public void invalidate() {
+        generation.incrementAndGet();
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // Publish stock changes already committed to the database without reloading the catalog. before is what
+    // cached() returned before the writing transaction began (may be null). Only that snapshot is patched: one
+    // loaded since may already hold the changes, even at the same version, so anything else is reloaded instead.
+    public void applyStockChanges(Snapshot before, Map<Integer, Integer> deltas) {
+        Snapshot current = snapshot;
+        long version = current != null ? current.version : -1;
+        if (current != null && current == before && generation.compareAndSet(version, version + 1)) {
+            Map<Integer, MenuItem> items = new LinkedHashMap<>(current.items);
+            for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+                MenuItem item = items.get(delta.getKey());
+                if (item != null) {
+                    items.put(item.getId(), new MenuItem(item.getId(), item.getName(), item.getCategory(),
+                            item.getPrice(), item.isAvailable(), item.getStockQuantity() + delta.getValue(), item.getReorderPoint()));
+                }
+            }
+            synchronized (this) {
+                if (snapshot == current) {
+                    snapshot = new Snapshot(version + 1, items);
+                }
+            }
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        } else {
+            invalidate();
+        }
+    }
+
+    // Subscribe to invalidations; listeners run on the writing thread
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,190 @@
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MenuImporter {
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    private final MenuCatalog catalog;
+    private final int batchSize;
+
+    // Receives progress while an import runs (called on the importing thread)
+    public interface Progress {
+        void update(int rowsRead, long charsRead);
+    }
+
+    // Outcome of one import
+    public static final class Result {
+        private int inserted;
+        private int updated;
+        private int failed;
+        private final List<String> errors = new ArrayList<>();
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        // First few per-row errors, with line numbers
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        private void error(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + line + ": " + message);
+            }
+        }
+    }
+
+    // Constructor
+    public MenuImporter(MenuCatalog catalog, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.catalog = catalog;
+        this.batchSize = batchSize;
+    }
+
+    // Stream name,category,price,available rows into menu_items in one transaction.
+    // Rows whose name already exists update that item instead of adding a duplicate.
+    public Result importCsv(Connection conn, Reader source, Progress progress) throws SQLException, IOException {
+        Result result = new Result();
+        CountingReader reader = new CountingReader(source);
+        Set<String> existingNames = new HashSet<>();
+        for (MenuItem item : catalog.snapshot(conn).items()) {
+            existingNames.add(item.getName());
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (CSVReader csv = new CSVReader(reader);
+             PreparedStatement insertPs = conn.prepareStatement(MenuRepository.INSERT);
+             PreparedStatement updatePs = conn.prepareStatement(MenuRepository.UPDATE_BY_NAME)) {
+            int pending = 0;
+            int rows = 0;
+            String[] data;
+            while ((data = readRow(csv, result)) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SQLException("Import cancelled");
+                }
+                rows++;
+                long line = csv.getLinesRead();
+                if (data.length == 1 && data[0].trim().isEmpty()) {
+                    continue;
+                }
+                if (data.length != 4) {
+                    result.error(line, "expected 4 columns, found " + data.length);
+                    continue;
+                }
+                String name = data[0].trim();
+                String category = data[1].trim();
+                if (rows == 1 && "price".equalsIgnoreCase(data[2].trim())) {
+                    continue; // Header row
+                }
+                if (name.isEmpty()) {
+                    result.error(line, "missing item name");
+                    continue;
+                }
+                BigDecimal price;
+                try {
+                    price = new BigDecimal(data[2].trim());
+                } catch (NumberFormatException e) {
+                    result.error(line, "invalid price '" + data[2] + "'");
+                    continue;
+                }
+                boolean available = Boolean.parseBoolean(data[3].trim());
+
+                if (existingNames.contains(name)) {
+                    updatePs.setString(1, category);
+                    updatePs.setBigDecimal(2, price);
+                    updatePs.setBoolean(3, available);
+                    updatePs.setString(4, name);
+                    updatePs.addBatch();
+                    result.updated++;
+                } else {
+                    insertPs.setString(1, name);
+                    insertPs.setString(2, category);
+                    insertPs.setBigDecimal(3, price);
+                    insertPs.setBoolean(4, available);
+                    insertPs.addBatch();
+                    existingNames.add(name);
+                    result.inserted++;
+                }
+                if (++pending == batchSize) {
+                    // Inserts go first so a later update of the same name in this file finds the row
+                    insertPs.executeBatch();
+                    updatePs.executeBatch();
+                    pending = 0;
+                    if (progress != null) {
+                        progress.update(rows, reader.count);
+                    }
+                }
+            }
+            insertPs.executeBatch();
+            updatePs.executeBatch();
+            conn.commit();
+            if (progress != null) {
+                progress.update(rows, reader.count);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+            catalog.invalidate();
+        }
+        return result;
+    }
+
+    // Read the next row, recording malformed rows as errors and skipping them
+    private static String[] readRow(CSVReader csv, Result result) throws IOException {
+        while (true) {
+            try {
+                return csv.readNext();
+            } catch (CsvValidationException e) {
+                result.error(csv.getLinesRead(), e.getMessage());
+            }
+        }
+    }
+
+    // Counts characters consumed so callers can show progress against the file size
+    private static final class CountingReader extends Reader {
+        private final Reader in;
+        private long count;
+
+        CountingReader(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int n = in.read(buf, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+public final class MenuItem {
+    // Stock level that raises a low-stock alert unless an item sets its own
+    public static final int DEFAULT_REORDER_POINT = 10;
+
+    private final int id;
+    private final String name;
+    private final String category;
+    private final double price;
+    private final boolean available;
+    private final int stockQuantity;
+    private final int reorderPoint;
+
+    // Constructor, with the default reorder point
+    public MenuItem(int id, String name, String category, double price, boolean available, int stockQuantity) {
+        this(id, name, category, price, available, stockQuantity, DEFAULT_REORDER_POINT);
+    }
+
+    public MenuItem(int id, String name, String category, double price, boolean available, int stockQuantity, int reorderPoint) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.price = price;
+        this.available = available;
+        this.stockQuantity = stockQuantity;
+        this.reorderPoint = reorderPoint;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+
+    // Alert when stock falls to this level or below
+    public int getReorderPoint() {
+        return reorderPoint;
+    }
+}
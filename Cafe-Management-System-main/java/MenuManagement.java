@@ -1,17 +1,23 @@
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MenuManagement {
-    private Connection conn;
+    private DbExecutor db;
+    private MenuCatalog catalog;
+    private SettingsService settings;
+    private final MenuRepository menuRepository = new MenuRepository();
     private JFrame frame;
 
     // Constructor
-    public MenuManagement(Connection conn, JFrame frame) {
-        this.conn = conn;
+    public MenuManagement(DbExecutor db, MenuCatalog catalog, SettingsService settings, JFrame frame) {
+        this.db = db;
+        this.catalog = catalog;
+        this.settings = settings;
         this.frame = frame;
     }
 
@@ -28,9 +34,12 @@ public class MenuManagement {
         JList<String> menuList = new JList<>(menuListModel);
         JButton deleteButton = new JButton("Delete Item");
         JButton loadCsvButton = new JButton("Load from CSV");
+        BusyPanel busyPanel = new BusyPanel();
 
-// Load menu items
-        refreshMenuList(menuListModel);
+// Load menu items, and reload whenever any tab writes to the menu or the currency changes
+        refreshMenuList(menuListModel, busyPanel);
+        catalog.addListener(() -> SwingUtilities.invokeLater(() -> refreshMenuList(menuListModel, busyPanel)));
+        settings.addListener(() -> SwingUtilities.invokeLater(() -> refreshMenuList(menuListModel, busyPanel)));
 
 // Add menu item
         addButton.addActionListener(e -> {
@@ -38,24 +47,22 @@ public class MenuManagement {
             String priceText = priceField.getText();
             String category = (String) categoryCombo.getSelectedItem();
             boolean available = availableCheck.isSelected();
+            double price;
             try {
-                double price = Double.parseDouble(priceText);
-                String query = "INSERT INTO menu_items (name, category, price, available) VALUES (?, ?, ?, ?)";
-                PreparedStatement ps = conn.prepareStatement(query);
-                ps.setString(1, name);
-                ps.setString(2, category);
-                ps.setDouble(3, price);
-                ps.setBoolean(4, available);
-                ps.executeUpdate();
-                refreshMenuList(menuListModel);
-                nameField.setText("");
-                priceField.setText("");
-                JOptionPane.showMessageDialog(frame, "Menu item added");
+                price = Double.parseDouble(priceText);
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(frame, "Invalid price format");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error adding item: " + ex.getMessage());
+                return;
             }
+            db.submit(busyPanel, "Adding item...", conn -> {
+                int rows = menuRepository.insert(conn, name, category, price, available);
+                catalog.invalidate();
+                return rows;
+            }, rows -> {
+                nameField.setText("");
+                priceField.setText("");
+                JOptionPane.showMessageDialog(frame, "Menu item added");
+            }, ex -> JOptionPane.showMessageDialog(frame, "Error adding item: " + ex.getMessage()));
         });
 
 // Update menu item
@@ -67,25 +74,22 @@ public class MenuManagement {
                 String priceText = priceField.getText();
                 String category = (String) categoryCombo.getSelectedItem();
                 boolean available = availableCheck.isSelected();
+                double price;
                 try {
-                    double price = Double.parseDouble(priceText);
-                    String query = "UPDATE menu_items SET name = ?, category = ?, price = ?, available = ? WHERE id = ?";
-                    PreparedStatement ps = conn.prepareStatement(query);
-                    ps.setString(1, name);
-                    ps.setString(2, category);
-                    ps.setDouble(3, price);
-                    ps.setBoolean(4, available);
-                    ps.setInt(5, id);
-                    ps.executeUpdate();
-                    refreshMenuList(menuListModel);
-                    nameField.setText("");
-                    priceField.setText("");
-                    JOptionPane.showMessageDialog(frame, "Menu item updated");
+                    price = Double.parseDouble(priceText);
                 } catch (NumberFormatException ex) {
                     JOptionPane.showMessageDialog(frame, "Invalid price format");
-                } catch (SQLException ex) {
-                    JOptionPane.showMessageDialog(frame, "Error updating item: " + ex.getMessage());
+                    return;
                 }
+                db.submit(busyPanel, "Updating item...", conn -> {
+                    int rows = menuRepository.update(conn, id, name, category, price, available);
+                    catalog.invalidate();
+                    return rows;
+                }, rows -> {
+                    nameField.setText("");
+                    priceField.setText("");
+                    JOptionPane.showMessageDialog(frame, "Menu item updated");
+                }, ex -> JOptionPane.showMessageDialog(frame, "Error updating item: " + ex.getMessage()));
             } else {
                 JOptionPane.showMessageDialog(frame, "Select an item to update");
             }
@@ -96,16 +100,13 @@ public class MenuManagement {
             String selected = menuList.getSelectedValue();
             if (selected != null) {
                 int id = Integer.parseInt(selected.split(":")[0]);
-                try {
-                    String query = "DELETE FROM menu_items WHERE id = ?";
-                    PreparedStatement ps = conn.prepareStatement(query);
-                    ps.setInt(1, id);
-                    ps.executeUpdate();
-                    refreshMenuList(menuListModel);
+                db.submit(busyPanel, "Deleting item...", conn -> {
+                    int rows = menuRepository.delete(conn, id);
+                    catalog.invalidate();
+                    return rows;
+                }, rows -> {
                     JOptionPane.showMessageDialog(frame, "Menu item deleted");
-                } catch (SQLException ex) {
-                    JOptionPane.showMessageDialog(frame, "Error deleting item: " + ex.getMessage());
-                }
+                }, ex -> JOptionPane.showMessageDialog(frame, "Error deleting item: " + ex.getMessage()));
             }
         });
 
@@ -113,29 +114,28 @@ public class MenuManagement {
         loadCsvButton.addActionListener(e -> {
             JFileChooser fileChooser = new JFileChooser();
             if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
-                try (BufferedReader br = new BufferedReader(new FileReader(fileChooser.getSelectedFile()))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        String[] data = line.split(",");
-                        if (data.length == 4) {
-                            String name = data[0];
-                            String category = data[1];
-                            double price = Double.parseDouble(data[2]);
-                            boolean available = Boolean.parseBoolean(data[3]);
-                            String query = "INSERT INTO menu_items (name, category, price, available) VALUES (?, ?, ?, ?)";
-                            PreparedStatement ps = conn.prepareStatement(query);
-                            ps.setString(1, name);
-                            ps.setString(2, category);
-                            ps.setDouble(3, price);
-                            ps.setBoolean(4, available);
-                            ps.executeUpdate();
+                File file = fileChooser.getSelectedFile();
+                long fileSize = Math.max(1, file.length());
+                MenuImporter importer = new MenuImporter(catalog, Integer.getInteger("cafe.import.batchSize", 500));
+                db.submit(busyPanel, "Loading CSV...", conn -> {
+                    try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+                        return importer.importCsv(conn, br, (rows, chars) -> {
+                            int percent = (int) Math.min(100, chars * 100 / fileSize);
+                            SwingUtilities.invokeLater(() -> busyPanel.setProgress(percent, 100));
+                        });
+                    }
+                }, result -> {
+                    StringBuilder message = new StringBuilder("Menu loaded from CSV: ")
+                            .append(result.getInserted()).append(" added, ")
+                            .append(result.getUpdated()).append(" updated");
+                    if (result.getFailed() > 0) {
+                        message.append(", ").append(result.getFailed()).append(" rows skipped\n");
+                        for (String error : result.getErrors()) {
+                            message.append("\n").append(error);
                         }
                     }
-                    refreshMenuList(menuListModel);
-                    JOptionPane.showMessageDialog(frame, "Menu loaded from CSV");
-                } catch (IOException | SQLException | NumberFormatException ex) {
-                    JOptionPane.showMessageDialog(frame, "Error loading CSV: " + ex.getMessage());
-                }
+                    JOptionPane.showMessageDialog(frame, message.toString());
+                }, ex -> JOptionPane.showMessageDialog(frame, "Error loading CSV: " + ex.getMessage()));
             }
         });
 
@@ -144,21 +144,15 @@ public class MenuManagement {
             if (!e.getValueIsAdjusting()) {
                 String selected = menuList.getSelectedValue();
                 if (selected != null) {
-                    try {
-                        int id = Integer.parseInt(selected.split(":")[0]);
-                        String query = "SELECT name, category, price, available FROM menu_items WHERE id = ?";
-                        PreparedStatement ps = conn.prepareStatement(query);
-                        ps.setInt(1, id);
-                        ResultSet rs = ps.executeQuery();
-                        if (rs.next()) {
-                            nameField.setText(rs.getString("name"));
-                            categoryCombo.setSelectedItem(rs.getString("category"));
-                            priceField.setText(String.valueOf(rs.getDouble("price")));
-                            availableCheck.setSelected(rs.getBoolean("available"));
+                    int id = Integer.parseInt(selected.split(":")[0]);
+                    db.submit(busyPanel, "Loading item...", conn -> catalog.snapshot(conn).get(id), item -> {
+                        if (item != null) {
+                            nameField.setText(item.getName());
+                            categoryCombo.setSelectedItem(item.getCategory());
+                            priceField.setText(String.valueOf(item.getPrice()));
+                            availableCheck.setSelected(item.isAvailable());
                         }
-                    } catch (SQLException ex) {
-                        JOptionPane.showMessageDialog(frame, "Error loading item: " + ex.getMessage());
-                    }
+                    }, ex -> JOptionPane.showMessageDialog(frame, "Error loading item: " + ex.getMessage()));
                 }
             }
         });
@@ -177,22 +171,32 @@ public class MenuManagement {
         inputPanel.add(deleteButton);
         inputPanel.add(loadCsvButton);
 
-        panel.add(inputPanel, BorderLayout.NORTH);
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(inputPanel, BorderLayout.CENTER);
+        northPanel.add(busyPanel, BorderLayout.SOUTH);
+
+        panel.add(northPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(menuList), BorderLayout.CENTER);
         return panel;
     }
 
     // Refresh menu list
-    private void refreshMenuList(DefaultListModel<String> menuListModel) {
-        menuListModel.clear();
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT id, name, category, price, available FROM menu_items");
-            while (rs.next()) {
-                menuListModel.addElement(rs.getInt("id") + ": " + rs.getString("name") + " (" + rs.getString("category") + ") - Rs." + rs.getDouble("price") + (rs.getBoolean("available") ? "" : " [Unavailable]"));
+    private void refreshMenuList(DefaultListModel<String> menuListModel, BusyPanel busyPanel) {
+        String currency = settings.current().getCurrency();
+        db.submit(busyPanel, "Loading menu...", conn -> {
+            List<String> items = new ArrayList<>();
+            for (MenuItem item : catalog.snapshot(conn).items()) {
+                StringBuilder text = new StringBuilder(64).append(item.getId()).append(": ").append(item.getName())
+                        .append(" (").append(item.getCategory()).append(") - ").append(currency);
+                Money.append(text, Money.ofDouble(item.getPrice())).append(item.isAvailable() ? "" : " [Unavailable]");
+                items.add(text.toString());
+            }
+            return items;
+        }, items -> {
+            menuListModel.clear();
+            for (String item : items) {
+                menuListModel.addElement(item);
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading menu: " + e.getMessage());
-        }
+        }, ex -> JOptionPane.showMessageDialog(frame, "Error loading menu: " + ex.getMessage()));
     }
 }
\ No newline at end of file
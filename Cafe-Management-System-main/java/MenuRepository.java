@@ -0,0 +1,97 @@
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MenuRepository {
+    private static final String FIND_ALL = "SELECT id, name, category, price, available, stock_quantity, reorder_point FROM menu_items ORDER BY id";
+    // Parameters: name, category, price, available
+    static final String INSERT = "INSERT INTO menu_items (name, category, price, available) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE menu_items SET name = ?, category = ?, price = ?, available = ? WHERE id = ?";
+    // Parameters: category, price, available, name
+    static final String UPDATE_BY_NAME = "UPDATE menu_items SET category = ?, price = ?, available = ? WHERE name = ?";
+    private static final String DELETE = "DELETE FROM menu_items WHERE id = ?";
+    private static final String ADJUST_STOCK = "UPDATE menu_items SET stock_quantity = stock_quantity + ? WHERE id = ?";
+    private static final String SET_REORDER_POINT = "UPDATE menu_items SET reorder_point = ? WHERE id = ?";
+    private static final String DECREMENT_STOCK = "UPDATE menu_items SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    // Every menu item in id order
+    public Map<Integer, MenuItem> findAll(Connection conn) throws SQLException {
+        Map<Integer, MenuItem> items = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(FIND_ALL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                MenuItem item = new MenuItem(rs.getInt("id"), rs.getString("name"), rs.getString("category"),
+                        rs.getDouble("price"), rs.getBoolean("available"), rs.getInt("stock_quantity"), rs.getInt("reorder_point"));
+                items.put(item.getId(), item);
+            }
+        }
+        return items;
+    }
+
+    public int insert(Connection conn, String name, String category, double price, boolean available) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            ps.setString(1, name);
+            ps.setString(2, category);
+            ps.setDouble(3, price);
+            ps.setBoolean(4, available);
+            return ps.executeUpdate();
+        }
+    }
+
+    public int update(Connection conn, int id, String name, String category, double price, boolean available) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE)) {
+            ps.setString(1, name);
+            ps.setString(2, category);
+            ps.setDouble(3, price);
+            ps.setBoolean(4, available);
+            ps.setInt(5, id);
+            return ps.executeUpdate();
+        }
+    }
+
+    public int delete(Connection conn, int id) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(DELETE)) {
+            ps.setInt(1, id);
+            return ps.executeUpdate();
+        }
+    }
+
+    // Stock level at which the item raises a low-stock alert
+    public int setReorderPoint(Connection conn, int itemId, int reorderPoint) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SET_REORDER_POINT)) {
+            ps.setInt(1, reorderPoint);
+            ps.setInt(2, itemId);
+            return ps.executeUpdate();
+        }
+    }
+
+    // Add (or with a negative change, remove) stock for one item
+    public int adjustStock(Connection conn, int itemId, int change) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ADJUST_STOCK)) {
+            ps.setInt(1, change);
+            ps.setInt(2, itemId);
+            return ps.executeUpdate();
+        }
+    }
+
+    // Guarded decrements for every item on an order in one batch: a row only updates if enough
+    // stock is left, so no read is needed first. Returns the index of the first short item, or -1.
+    public int decrementStock(Connection conn, Order order) throws SQLException {
+        int[] updated;
+        try (PreparedStatement ps = conn.prepareStatement(DECREMENT_STOCK)) {
+            for (int i = 0; i < order.getItemCount(); i++) {
+                ps.setInt(1, order.getItemQuantity(i));
+                ps.setInt(2, order.getItemId(i));
+                ps.setInt(3, order.getItemQuantity(i));
+                ps.addBatch();
+            }
+            updated = ps.executeBatch();
+        }
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
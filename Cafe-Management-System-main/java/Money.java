@@ -0,0 +1,88 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts are carried as long paise everywhere in the application. These helpers convert at
+// the edges (user input, JDBC DECIMAL columns, menu prices) and print amounts straight into a
+// StringBuilder, so rendering a bill or report does not box or format doubles.
+public final class Money {
+    private Money() {
+    }
+
+    // "12", "12.5" or "-3.25" as paise; more than two decimal places is rejected rather than rounded
+    public static long parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+        long minor = 0;
+        int digits = 0;
+        int decimals = -1;
+        try {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '.' && decimals < 0) {
+                    decimals = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException("Invalid amount: " + text);
+                }
+                if (decimals >= 0 && ++decimals > 2) {
+                    throw new NumberFormatException("Amount has more than two decimal places: " + text);
+                }
+                minor = Math.addExact(Math.multiplyExact(minor, 10), c - '0');
+                digits++;
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+            for (int scale = Math.max(decimals, 0); scale < 2; scale++) {
+                minor = Math.multiplyExact(minor, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+        return negative ? -minor : minor;
+    }
+
+    // A DECIMAL column value as paise, rounding half-up past two places; null reads as zero
+    public static long ofDecimal(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Paise as a DECIMAL(n,2) parameter
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+
+    // A menu price read as a double, to the nearest paisa
+    public static long ofDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // Append paise as rupees with exactly two decimals, e.g. 1205 -> "12.05"
+    public static StringBuilder append(StringBuilder out, long minor) {
+        if (minor < 0) {
+            out.append('-');
+        }
+        int paise = (int) Math.abs(minor % 100);
+        out.append(Math.abs(minor / 100)).append('.');
+        if (paise < 10) {
+            out.append('0');
+        }
+        return out.append(paise);
+    }
+
+    public static String format(long minor) {
+        return append(new StringBuilder(12), minor).toString();
+    }
+}
@@ -0,0 +1,39 @@
+import java.sql.SQLException;
+
+// MySQL server, reached over the network
+public class MySqlBackend implements StorageBackend {
+    // MySQL error for "Duplicate key name" when an index already exists
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+
+    // Server-side prepares, so a statement cached by the pool is parsed by MySQL only once
+    @Override
+    public String getDefaultUrl() {
+        return "jdbc:mysql://localhost:3306/cafe_db?useSSL=false&rewriteBatchedStatements=true&useServerPrepStmts=true";
+    }
+
+    @Override
+    public String getDefaultUser() {
+        return "root";
+    }
+
+    @Override
+    public int getDefaultPoolSize() {
+        return 8;
+    }
+
+    @Override
+    public boolean isDuplicateIndex(SQLException e) {
+        return e.getErrorCode() == ER_DUP_KEYNAME;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        // Integer.MIN_VALUE makes Connector/J stream rows instead of buffering the whole result
+        return Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class Order {
+    private final String orderType;
+    private final String tableNumber;
+    private final long discountMinor;
+    private final List<OrderLine> lines;
+    private final long subtotalMinor;
+    private final int[] itemIds;
+    private final int[] itemQuantities;
+
+    // Constructor; amounts are in minor units (paise)
+    public Order(String orderType, String tableNumber, long discountMinor, List<OrderLine> lines) {
+        this.orderType = orderType;
+        this.tableNumber = tableNumber;
+        this.discountMinor = discountMinor;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+
+        // Subtotal and per-item quantities, with repeated items merged
+        long subtotal = 0;
+        int[] ids = new int[lines.size()];
+        int[] quantities = new int[lines.size()];
+        int distinct = 0;
+        for (OrderLine line : this.lines) {
+            subtotal += line.getLineTotalMinor();
+            int slot = 0;
+            while (slot < distinct && ids[slot] != line.getItemId()) {
+                slot++;
+            }
+            if (slot == distinct) {
+                ids[distinct++] = line.getItemId();
+            }
+            quantities[slot] += line.getQuantity();
+        }
+        this.subtotalMinor = subtotal;
+        this.itemIds = Arrays.copyOf(ids, distinct);
+        this.itemQuantities = Arrays.copyOf(quantities, distinct);
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public long getDiscountMinor() {
+        return discountMinor;
+    }
+
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+
+    public long getSubtotalMinor() {
+        return subtotalMinor;
+    }
+
+    // Number of distinct items in the order
+    public int getItemCount() {
+        return itemIds.length;
+    }
+
+    // Item id at index i of the merged item list
+    public int getItemId(int i) {
+        return itemIds[i];
+    }
+
+    // Total quantity ordered of the item at index i of the merged item list
+    public int getItemQuantity(int i) {
+        return itemQuantities[i];
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+}
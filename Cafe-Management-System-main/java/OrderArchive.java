@@ -0,0 +1,522 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Closed days of orders and order_items in a compact columnar file, memory-mapped so reports on
+// old data read the page cache instead of competing with the tills for the live tables.
+//
+// Each export writes a new file named after the first day it does not cover (orders-20261018.archive),
+// carrying over the previous file's contents, then maps it and deletes the old one. A file is never
+// modified once written. Layout, big-endian, sections in this order:
+//   header     magic, version, first day (epoch day), then day, order, line and item counts
+//   dayStart   int[days + 1]     first order of each calendar day, so a date range is an order range
+//   seconds    int[orders]       seconds since the previous order that day (since midnight for the first)
+//   subtotal, gst, discount, total   int[orders] each, in paise
+//   lineStart  int[orders + 1]   first line of each order
+//   lineItem   char[lines]       index into the item dictionary, padded to 4 bytes
+//   quantity   int[lines]
+//   unitPrice  int[lines]        paise
+//   itemId     int[items]        the dictionary: menu_items.id
+//   names      per item, name and category as length-prefixed UTF-8, as they were when archived
+public class OrderArchive {
+    private static final int MAGIC = 0x4341524F;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    // Write buffer; holds the largest single value, a 64 KB name plus its length
+    private static final int WRITE_CHUNK = 128 * 1024;
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".archive";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String ORDERS = "SELECT o.id, o.order_date, o.subtotal, o.gst, o.discount, o.total, " +
+            "oi.item_id, oi.quantity, COALESCE(oi.unit_price, m.price, 0), m.name, m.category " +
+            "FROM orders o " +
+            "LEFT JOIN order_items oi ON o.id = oi.order_id " +
+            "LEFT JOIN menu_items m ON oi.item_id = m.id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? " +
+            "ORDER BY o.order_date, o.id";
+
+    private final Path directory;
+    // Null until the first export
+    private volatile Snapshot current;
+
+    // One mapped archive file; immutable, so any number of threads can read it
+    public static final class Snapshot {
+        private final ByteBuffer buffer;
+        private final LocalDate firstDay;
+        private final int days;
+        private final int orders;
+        private final int lines;
+        private final int dayStartAt;
+        private final int secondsAt;
+        private final int subtotalAt;
+        private final int gstAt;
+        private final int discountAt;
+        private final int totalAt;
+        private final int lineStartAt;
+        private final int lineItemAt;
+        private final int quantityAt;
+        private final int unitPriceAt;
+        // Dictionary entries as menu items (price and stock unused)
+        private final MenuItem[] dictionary;
+        private final Map<Integer, MenuItem> byId = new HashMap<>();
+
+        private Snapshot(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not an order archive");
+            }
+            firstDay = LocalDate.ofEpochDay(buffer.getLong(8));
+            days = buffer.getInt(16);
+            orders = buffer.getInt(20);
+            lines = buffer.getInt(24);
+            int items = buffer.getInt(28);
+            dayStartAt = HEADER_SIZE;
+            secondsAt = dayStartAt + 4 * (days + 1);
+            subtotalAt = secondsAt + 4 * orders;
+            gstAt = subtotalAt + 4 * orders;
+            discountAt = gstAt + 4 * orders;
+            totalAt = discountAt + 4 * orders;
+            lineStartAt = totalAt + 4 * orders;
+            lineItemAt = lineStartAt + 4 * (orders + 1);
+            quantityAt = lineItemAt + 4 * ((lines + 1) / 2);
+            unitPriceAt = quantityAt + 4 * lines;
+            int itemIdAt = unitPriceAt + 4 * lines;
+            dictionary = new MenuItem[items];
+            ByteBuffer names = buffer.duplicate();
+            names.position(itemIdAt + 4 * items);
+            for (int i = 0; i < items; i++) {
+                int itemId = buffer.getInt(itemIdAt + 4 * i);
+                dictionary[i] = new MenuItem(itemId, readString(names), readString(names), 0, false, 0);
+                byId.put(itemId, dictionary[i]);
+            }
+        }
+
+        // First archived day
+        public LocalDate getFirstDay() {
+            return firstDay;
+        }
+
+        // First day not in the archive; everything before it is answered from the file
+        public LocalDate getEndDay() {
+            return firstDay.plusDays(days);
+        }
+
+        public int getOrderCount() {
+            return orders;
+        }
+
+        public int getLineCount() {
+            return lines;
+        }
+
+        // Name and category of an archived item, or null if it never sold before the end day
+        public MenuItem getItem(int itemId) {
+            return byId.get(itemId);
+        }
+
+        // Per-day totals for the archived part of [from, toExclusive), oldest first, like SalesRollup.readDays
+        public List<SalesRollup.DaySummary> readDays(LocalDate from, LocalDate toExclusive) {
+            List<SalesRollup.DaySummary> result = new ArrayList<>();
+            for (int d = dayIndex(from); d < dayIndex(toExclusive); d++) {
+                int first = buffer.getInt(dayStartAt + 4 * d);
+                int end = buffer.getInt(dayStartAt + 4 * (d + 1));
+                if (first == end) {
+                    continue;
+                }
+                long subtotal = 0;
+                long gst = 0;
+                long discount = 0;
+                long total = 0;
+                for (int o = first; o < end; o++) {
+                    subtotal += buffer.getInt(subtotalAt + 4 * o);
+                    gst += buffer.getInt(gstAt + 4 * o);
+                    discount += buffer.getInt(discountAt + 4 * o);
+                    total += buffer.getInt(totalAt + 4 * o);
+                }
+                result.add(new SalesRollup.DaySummary(firstDay.plusDays(d), end - first, subtotal, gst, discount, total));
+            }
+            return result;
+        }
+
+        // Quantities per item for the archived part of [from, toExclusive), best sellers first, like SalesRollup.readItems
+        public List<SalesRollup.ItemTotal> readItems(LocalDate from, LocalDate toExclusive) {
+            int[] quantities = new int[dictionary.length];
+            int end = lineStart(orderAt(toExclusive));
+            for (int line = lineStart(orderAt(from)); line < end; line++) {
+                quantities[buffer.getChar(lineItemAt + 2 * line)] += buffer.getInt(quantityAt + 4 * line);
+            }
+            List<SalesRollup.ItemTotal> result = new ArrayList<>();
+            for (int i = 0; i < quantities.length; i++) {
+                if (quantities[i] > 0) {
+                    result.add(new SalesRollup.ItemTotal(dictionary[i].getId(), dictionary[i].getName(), quantities[i]));
+                }
+            }
+            result.sort((a, b) -> Integer.compare(b.getQuantity(), a.getQuantity()));
+            return result;
+        }
+
+        // Order lines for the archived part of [from, toExclusive), for ItemAnalytics
+        public OrderItemColumns columns(LocalDate from, LocalDate toExclusive) {
+            int firstOrder = orderAt(from);
+            int orderCount = orderAt(toExclusive) - firstOrder;
+            int firstLine = lineStart(firstOrder);
+            int lineCount = lineStart(firstOrder + orderCount) - firstLine;
+            int[] orderStart = new int[orderCount + 1];
+            for (int o = 0; o <= orderCount; o++) {
+                orderStart[o] = lineStart(firstOrder + o) - firstLine;
+            }
+            // Renumber so only items sold in the range get a dense number
+            int[] denseByEntry = new int[dictionary.length];
+            int[] itemIds = new int[dictionary.length];
+            int itemCount = 0;
+            int[] item = new int[lineCount];
+            int[] quantity = new int[lineCount];
+            long[] revenue = new long[lineCount];
+            for (int i = 0; i < lineCount; i++) {
+                int line = firstLine + i;
+                int entry = buffer.getChar(lineItemAt + 2 * line);
+                if (denseByEntry[entry] == 0) {
+                    itemIds[itemCount++] = dictionary[entry].getId();
+                    denseByEntry[entry] = itemCount;
+                }
+                item[i] = denseByEntry[entry] - 1;
+                quantity[i] = buffer.getInt(quantityAt + 4 * line);
+                revenue[i] = (long) quantity[i] * buffer.getInt(unitPriceAt + 4 * line);
+            }
+            return new OrderItemColumns(orderStart, item, quantity, revenue, Arrays.copyOf(itemIds, itemCount));
+        }
+
+        private int dayIndex(LocalDate day) {
+            return (int) Math.max(0, Math.min(days, day.toEpochDay() - firstDay.toEpochDay()));
+        }
+
+        // First order on or after the start of day
+        private int orderAt(LocalDate day) {
+            return buffer.getInt(dayStartAt + 4 * dayIndex(day));
+        }
+
+        private int lineStart(int order) {
+            return buffer.getInt(lineStartAt + 4 * order);
+        }
+
+        private static String readString(ByteBuffer in) {
+            byte[] bytes = new byte[in.getShort() & 0xFFFF];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private OrderArchive(Path directory, Snapshot current) {
+        this.directory = directory;
+        this.current = current;
+    }
+
+    // Open the archive kept in directory, mapping the newest file and removing leftovers from earlier exports
+    public static OrderArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path newest = null;
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(SUFFIX)) {
+                    stale.add(file);
+                } else if (newest == null || name.compareTo(newest.getFileName().toString()) > 0) {
+                    if (newest != null) {
+                        stale.add(newest);
+                    }
+                    newest = file;
+                } else {
+                    stale.add(file);
+                }
+            }
+        }
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+        return new OrderArchive(directory, newest != null ? map(newest) : null);
+    }
+
+    // Current archive, or null if nothing has been exported yet
+    public Snapshot current() {
+        return current;
+    }
+
+    // Archive every day from the end of the current archive up to toExclusive (normally today, so only
+    // closed days are archived). Reads only the new days from the database. Returns the current snapshot.
+    public synchronized Snapshot update(Connection conn, LocalDate toExclusive) throws SQLException, IOException {
+        Snapshot previous = current;
+        LocalDate from = previous != null ? previous.getEndDay() : firstOrderDay(conn);
+        if (from == null || !from.isBefore(toExclusive)) {
+            return previous;
+        }
+        Builder builder = new Builder(previous != null ? previous.getFirstDay() : from);
+        if (previous != null) {
+            builder.copy(previous);
+        }
+        try (PreparedStatement ps = conn.prepareStatement(ORDERS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(StorageBackend.forConnection(conn).getStreamingFetchSize());
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(toExclusive.atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int lastOrder = 0;
+                int rows = 0;
+                while (rs.next()) {
+                    if ((rows++ & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+                        throw new SQLException("Archive export cancelled");
+                    }
+                    int orderId = rs.getInt(1);
+                    if (rows == 1 || orderId != lastOrder) {
+                        lastOrder = orderId;
+                        builder.addOrder(orderId, rs.getTimestamp(2).toLocalDateTime(), Money.ofDecimal(rs.getBigDecimal(3)),
+                                Money.ofDecimal(rs.getBigDecimal(4)), Money.ofDecimal(rs.getBigDecimal(5)), Money.ofDecimal(rs.getBigDecimal(6)));
+                    }
+                    int itemId = rs.getInt(7);
+                    if (!rs.wasNull()) {
+                        String name = rs.getString(10);
+                        builder.addLine(orderId, itemId, name != null ? name : "Item " + itemId, name != null ? rs.getString(11) : "(removed)",
+                                rs.getInt(8), Money.ofDecimal(rs.getBigDecimal(9)));
+                    }
+                }
+            }
+        }
+        builder.endAt(toExclusive);
+
+        Path target = directory.resolve(PREFIX + toExclusive.format(DAY) + SUFFIX);
+        Path temp = directory.resolve(PREFIX + toExclusive.format(DAY) + ".tmp");
+        builder.write(temp);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Snapshot snapshot = map(target);
+        current = snapshot;
+        if (previous != null) {
+            // Readers may still hold the old snapshot; where the platform refuses to delete a mapped
+            // file it is removed the next time the archive is opened
+            Path old = directory.resolve(PREFIX + previous.getEndDay().format(DAY) + SUFFIX);
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                // Cleaned up by open
+            }
+        }
+        return snapshot;
+    }
+
+    private static LocalDate firstOrderDay(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT MIN(order_date) FROM orders")) {
+            return rs.next() && rs.getTimestamp(1) != null ? rs.getTimestamp(1).toLocalDateTime().toLocalDate() : null;
+        }
+    }
+
+    private static Snapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new Snapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new IOException("Cannot read order archive " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Growable int column
+    private static final class IntColumn {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    // Columns for a new archive file, filled in date order
+    private static final class Builder {
+        private final LocalDate firstDay;
+        private final IntColumn dayStart = new IntColumn();
+        private final IntColumn seconds = new IntColumn();
+        private final IntColumn subtotal = new IntColumn();
+        private final IntColumn gst = new IntColumn();
+        private final IntColumn discount = new IntColumn();
+        private final IntColumn total = new IntColumn();
+        private final IntColumn lineStart = new IntColumn();
+        private final IntColumn lineItem = new IntColumn();
+        private final IntColumn quantity = new IntColumn();
+        private final IntColumn unitPrice = new IntColumn();
+        private final IntColumn itemIds = new IntColumn();
+        private final List<byte[]> names = new ArrayList<>();
+        private final Map<Integer, Integer> entryById = new HashMap<>();
+        // Second of day of the last order, for the delta encoding
+        private int lastSecond;
+
+        Builder(LocalDate firstDay) {
+            this.firstDay = firstDay;
+        }
+
+        // Start from everything in an existing archive
+        void copy(Snapshot archive) {
+            ByteBuffer in = archive.buffer;
+            for (MenuItem item : archive.dictionary) {
+                addEntry(item.getId(), item.getName(), item.getCategory());
+            }
+            for (int d = 0; d < archive.days; d++) {
+                dayStart.add(in.getInt(archive.dayStartAt + 4 * d));
+            }
+            for (int o = 0; o < archive.orders; o++) {
+                seconds.add(in.getInt(archive.secondsAt + 4 * o));
+                subtotal.add(in.getInt(archive.subtotalAt + 4 * o));
+                gst.add(in.getInt(archive.gstAt + 4 * o));
+                discount.add(in.getInt(archive.discountAt + 4 * o));
+                total.add(in.getInt(archive.totalAt + 4 * o));
+                lineStart.add(in.getInt(archive.lineStartAt + 4 * o));
+            }
+            for (int l = 0; l < archive.lines; l++) {
+                lineItem.add(in.getChar(archive.lineItemAt + 2 * l));
+                quantity.add(in.getInt(archive.quantityAt + 4 * l));
+                unitPrice.add(in.getInt(archive.unitPriceAt + 4 * l));
+            }
+        }
+
+        // Add an order; orders must arrive in date order
+        void addOrder(int orderId, LocalDateTime at, long subtotalMinor, long gstMinor, long discountMinor, long totalMinor) {
+            int before = dayStart.size;
+            fillDaysUntil(at.toLocalDate().plusDays(1));
+            if (dayStart.size != before) {
+                lastSecond = 0;
+            }
+            int second = at.toLocalTime().toSecondOfDay();
+            seconds.add(second - lastSecond);
+            lastSecond = second;
+            subtotal.add(paise(orderId, subtotalMinor));
+            gst.add(paise(orderId, gstMinor));
+            discount.add(paise(orderId, discountMinor));
+            total.add(paise(orderId, totalMinor));
+            lineStart.add(lineItem.size);
+        }
+
+        // Add a line to the last order
+        void addLine(int orderId, int itemId, String name, String category, int qty, long unitPriceMinor) {
+            Integer entry = entryById.get(itemId);
+            lineItem.add(entry != null ? entry : addEntry(itemId, name, category));
+            quantity.add(qty);
+            unitPrice.add(paise(orderId, unitPriceMinor));
+        }
+
+        // Close the archive at toExclusive, adding any trailing days without orders
+        void endAt(LocalDate toExclusive) {
+            fillDaysUntil(toExclusive);
+            dayStart.add(seconds.size);
+            lineStart.add(lineItem.size);
+        }
+
+        private void fillDaysUntil(LocalDate toExclusive) {
+            while (firstDay.plusDays(dayStart.size).isBefore(toExclusive)) {
+                dayStart.add(seconds.size);
+            }
+        }
+
+        private int addEntry(int itemId, String name, String category) {
+            int entry = itemIds.size;
+            if (entry > Character.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct items to archive");
+            }
+            itemIds.add(itemId);
+            names.add(utf8(name));
+            names.add(utf8(category));
+            entryById.put(itemId, entry);
+            return entry;
+        }
+
+        private static byte[] utf8(String text) {
+            byte[] bytes = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+            return bytes.length > 0xFFFF ? Arrays.copyOf(bytes, 0xFFFF) : bytes;
+        }
+
+        private static int paise(int orderId, long minor) {
+            if (minor < Integer.MIN_VALUE || minor > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Order " + orderId + " amount too large to archive");
+            }
+            return (int) minor;
+        }
+
+        void write(Path file) throws IOException {
+            int orders = seconds.size;
+            int lines = lineItem.size;
+            long size = HEADER_SIZE + 4L * dayStart.size + 4L * 6 * orders + 4 + 4L * ((lines + 1) / 2) + 8L * lines + 4L * itemIds.size;
+            for (byte[] name : names) {
+                size += 2 + name.length;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Order archive would exceed 2 GB");
+            }
+            // Written through a heap buffer, not a writable mapping: Windows refuses to rename a file that is still mapped
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer out = ByteBuffer.allocate(WRITE_CHUNK);
+                out.putInt(MAGIC).putInt(VERSION).putLong(firstDay.toEpochDay())
+                        .putInt(dayStart.size - 1).putInt(orders).putInt(lines).putInt(itemIds.size);
+                out.position(HEADER_SIZE);
+                putAll(channel, out, dayStart);
+                putAll(channel, out, seconds);
+                putAll(channel, out, subtotal);
+                putAll(channel, out, gst);
+                putAll(channel, out, discount);
+                putAll(channel, out, total);
+                putAll(channel, out, lineStart);
+                for (int l = 0; l < lines; l++) {
+                    room(channel, out, 2).putChar((char) lineItem.values[l]);
+                }
+                if ((lines & 1) != 0) {
+                    room(channel, out, 2).putChar((char) 0);
+                }
+                putAll(channel, out, quantity);
+                putAll(channel, out, unitPrice);
+                putAll(channel, out, itemIds);
+                for (byte[] name : names) {
+                    room(channel, out, 2 + name.length).putShort((short) name.length).put(name);
+                }
+                drain(channel, out);
+                if (channel.size() != size) {
+                    throw new IOException("Order archive " + file + " is " + channel.size() + " bytes, expected " + size);
+                }
+                channel.force(true);
+            }
+        }
+
+        private static void putAll(FileChannel channel, ByteBuffer out, IntColumn column) throws IOException {
+            for (int i = 0; i < column.size; i++) {
+                room(channel, out, 4).putInt(column.values[i]);
+            }
+        }
+
+        // The buffer, drained to the file first if it cannot take another bytes
+        private static ByteBuffer room(FileChannel channel, ByteBuffer out, int bytes) throws IOException {
+            if (out.remaining() < bytes) {
+                drain(channel, out);
+            }
+            return out;
+        }
+
+        private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+}
@@ -1,18 +1,28 @@
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class OrderBilling {
-    private Connection conn;
+    private DbExecutor db;
+    private MenuCatalog catalog;
+    private BillingService billingService;
+    private StockLedger stockLedger;
+    private SettingsService settings;
+    private Supplier<SessionManager.Principal> currentUser;
     private JFrame frame;
 
     // Constructor
-    public OrderBilling(Connection conn, JFrame frame) {
-        this.conn = conn;
+    public OrderBilling(DbExecutor db, MenuCatalog catalog, BillingService billingService, StockLedger stockLedger,
+                        SettingsService settings, Supplier<SessionManager.Principal> currentUser, JFrame frame) {
+        this.db = db;
+        this.catalog = catalog;
+        this.billingService = billingService;
+        this.stockLedger = stockLedger;
+        this.settings = settings;
+        this.currentUser = currentUser;
         this.frame = frame;
     }
 
@@ -21,178 +31,127 @@ public class OrderBilling {
         JPanel panel = new JPanel(new BorderLayout());
         JComboBox<String> orderTypeCombo = new JComboBox<>(new String[]{"Table", "Takeaway"});
         JTextField tableNumberField = new JTextField(5);
-        JComboBox<String> itemCombo = new JComboBox<>();
+        JComboBox<MenuItem> itemCombo = new JComboBox<>();
+        itemCombo.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof MenuItem) {
+                    MenuItem item = (MenuItem) value;
+                    StringBuilder text = new StringBuilder().append(item.getId()).append(": ").append(item.getName()).append(" (");
+                    Money.append(text.append(settings.current().getCurrency()), Money.ofDouble(item.getPrice()));
+                    setText(text.append(')').toString());
+                }
+                return this;
+            }
+        });
         JTextField quantityField = new JTextField(5);
         JButton addItemButton = new JButton("Add Item to Order");
-        DefaultListModel<String> orderListModel = new DefaultListModel<>();
-        JList<String> orderList = new JList<>(orderListModel);
+        DefaultListModel<OrderLine> orderListModel = new DefaultListModel<>();
+        JList<OrderLine> orderList = new JList<>(orderListModel);
+        orderList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                setText(formatLine((OrderLine) value, settings.current().getCurrency()));
+                return this;
+            }
+        });
+        JLabel discountLabel = new JLabel();
         JTextField discountField = new JTextField(5);
         JButton generateBillButton = new JButton("Generate Bill");
+        JButton clearOrderButton = new JButton("Clear Order");
         JTextArea billArea = new JTextArea(10, 30);
         billArea.setEditable(false);
-
-        // Load menu items into combo box
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT id, name, price FROM menu_items WHERE available = TRUE");
-            while (rs.next()) {
-                itemCombo.addItem(rs.getInt("id") + ": " + rs.getString("name") + " (Rs." + rs.getDouble("price") + ")");
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading menu items: " + e.getMessage());
-        }
+        BusyPanel busyPanel = new BusyPanel();
+        // Stock reserved for the order being built at this till
+        StockLedger.Hold hold = stockLedger.openHold();
+
+        // Load menu items into combo box, and reload whenever the menu changes
+        refreshItemCombo(itemCombo, busyPanel);
+        catalog.addListener(() -> SwingUtilities.invokeLater(() -> refreshItemCombo(itemCombo, busyPanel)));
+
+        // Show amounts in the configured currency, and redraw when the settings change
+        refreshCurrency(discountLabel);
+        settings.addListener(() -> SwingUtilities.invokeLater(() -> {
+            refreshCurrency(discountLabel);
+            itemCombo.repaint();
+            orderList.repaint();
+        }));
 
         // Add item to order
         addItemButton.addActionListener(e -> {
-            String selectedItem = (String) itemCombo.getSelectedItem();
+            MenuItem selectedItem = (MenuItem) itemCombo.getSelectedItem();
             String quantityText = quantityField.getText();
+            int quantity;
             try {
-                int quantity = Integer.parseInt(quantityText);
-                if (quantity > 0) {
-                    int itemId = Integer.parseInt(selectedItem.split(":")[0]);
-                    // Check stock
-                    String stockQuery = "SELECT stock_quantity FROM menu_items WHERE id = ?";
-                    PreparedStatement stockPs = conn.prepareStatement(stockQuery);
-                    stockPs.setInt(1, itemId);
-                    ResultSet stockRs = stockPs.executeQuery();
-                    if (stockRs.next()) {
-                        int stock = stockRs.getInt("stock_quantity");
-                        if (stock < quantity) {
-                            JOptionPane.showMessageDialog(frame, "Insufficient stock for item ID " + itemId + ": " + stock + " units available");
-                            return;
-                        }
-                    }
-                    String query = "SELECT name, price FROM menu_items WHERE id = ?";
-                    PreparedStatement ps = conn.prepareStatement(query);
-                    ps.setInt(1, itemId);
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) {
-                        String name = rs.getString("name");
-                        double price = rs.getDouble("price");
-                        orderListModel.addElement(itemId + ": " + name + " x" + quantity + " (Rs." + (price * quantity) + ")");
-                        quantityField.setText("");
-                    }
-                } else {
-                    JOptionPane.showMessageDialog(frame, "Quantity must be positive");
-                }
+                quantity = Integer.parseInt(quantityText);
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(frame, "Invalid quantity");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error adding item: " + ex.getMessage());
+                return;
+            }
+            if (quantity <= 0) {
+                JOptionPane.showMessageDialog(frame, "Quantity must be positive");
+                return;
+            }
+            if (selectedItem == null) {
+                return;
             }
+            int itemId = selectedItem.getId();
+            db.submit(busyPanel, "Checking stock...", conn -> billingService.priceLine(conn, hold, itemId, quantity), line -> {
+                orderListModel.addElement(line);
+                quantityField.setText("");
+            }, ex -> JOptionPane.showMessageDialog(frame, ex instanceof IllegalStateException || ex instanceof IllegalArgumentException
+                    ? ex.getMessage() : "Error adding item: " + ex.getMessage()));
         });
 
         // Generate bill
         generateBillButton.addActionListener(e -> {
+            if (busyPanel.isBusy()) {
+                return;
+            }
             String orderType = (String) orderTypeCombo.getSelectedItem();
             String tableNumber = orderType.equals("Table") ? tableNumberField.getText() : "N/A";
             String discountText = discountField.getText();
+            long discountMinor;
             try {
-                double discount = discountText.isEmpty() ? 0.0 : Double.parseDouble(discountText);
-                double subtotal = 0.0;
-                List<String> orderItems = new ArrayList<>();
-
-                // Calculate subtotal and check stock
-                for (int i = 0; i < orderListModel.size(); i++) {
-                    String item = orderListModel.get(i);
-                    int itemId = Integer.parseInt(item.split(":")[0]);
-                    int quantity = Integer.parseInt(item.split("x")[1].split(" ")[0]);
-                    String query = "SELECT price, stock_quantity FROM menu_items WHERE id = ?";
-                    PreparedStatement ps = conn.prepareStatement(query);
-                    ps.setInt(1, itemId);
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) {
-                        double price = rs.getDouble("price");
-                        int stock = rs.getInt("stock_quantity");
-                        if (stock < quantity) {
-                            JOptionPane.showMessageDialog(frame, "Insufficient stock for item ID " + itemId + ": " + stock + " units available");
-                            return;
-                        }
-                        subtotal += price * quantity;
-                        orderItems.add(item);
-                    }
-                }
-
-                // Calculate GST (5%) and total
-                double gst = subtotal * 0.05;
-                double total = subtotal + gst - discount;
-
-                // Save order to database
-                String orderQuery = "INSERT INTO orders (order_type, table_number, subtotal, gst, discount, total, order_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
-                PreparedStatement ps = conn.prepareStatement(orderQuery, Statement.RETURN_GENERATED_KEYS);
-                ps.setString(1, orderType);
-                ps.setString(2, tableNumber);
-                ps.setDouble(3, subtotal);
-                ps.setDouble(4, gst);
-                ps.setDouble(5, discount);
-                ps.setDouble(6, total);
-                ps.setTimestamp(7, new Timestamp(new Date().getTime()));
-                ps.executeUpdate();
-
-                // Get order ID
-                ResultSet rs = ps.getGeneratedKeys();
-                int orderId = rs.next() ? rs.getInt(1) : -1;
-
-                // Save order items and update stock
-                for (String item : orderItems) {
-                    int itemId = Integer.parseInt(item.split(":")[0]);
-                    int quantity = Integer.parseInt(item.split("x")[1].split(" ")[0]);
-                    String itemQuery = "INSERT INTO order_items (order_id, item_id, quantity) VALUES (?, ?, ?)";
-                    PreparedStatement itemPs = conn.prepareStatement(itemQuery);
-                    itemPs.setInt(1, orderId);
-                    itemPs.setInt(2, itemId);
-                    itemPs.setInt(3, quantity);
-                    itemPs.executeUpdate();
-
-                    // Update stock
-                    String stockQuery = "UPDATE menu_items SET stock_quantity = stock_quantity - ? WHERE id = ?";
-                    PreparedStatement stockPs = conn.prepareStatement(stockQuery);
-                    stockPs.setInt(1, quantity);
-                    stockPs.setInt(2, itemId);
-                    stockPs.executeUpdate();
-
-                    // Log inventory transaction
-                    String transactionQuery = "INSERT INTO inventory_transactions (item_id, quantity, transaction_type, transaction_date) VALUES (?, ?, ?, ?)";
-                    PreparedStatement transactionPs = conn.prepareStatement(transactionQuery);
-                    transactionPs.setInt(1, itemId);
-                    transactionPs.setInt(2, quantity);
-                    transactionPs.setString(3, "Order Deduction");
-                    transactionPs.setTimestamp(4, new Timestamp(new Date().getTime()));
-                    transactionPs.executeUpdate();
-                }
-
-                // Display bill
-                StringBuilder bill = new StringBuilder();
-                bill.append("=== Cafe Bill ===\n");
-                bill.append("Order ID: ").append(orderId).append("\n");
-                bill.append("Date: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())).append("\n");
-                bill.append("Type: ").append(orderType).append("\n");
-                if (orderType.equals("Table")) {
-                    bill.append("Table: ").append(tableNumber).append("\n");
-                }
-                bill.append("\nItems:\n");
-                for (String item : orderItems) {
-                    bill.append(item).append("\n");
-                }
-                bill.append("\nSubtotal: Rs.").append(String.format("%.2f", subtotal)).append("\n");
-                bill.append("GST (5%): Rs.").append(String.format("%.2f", gst)).append("\n");
-                bill.append("Discount: Rs.").append(String.format("%.2f", discount)).append("\n");
-                bill.append("Total: Rs.").append(String.format("%.2f", total)).append("\n");
-                billArea.setText(bill.toString());
+                discountMinor = discountText.trim().isEmpty() ? 0 : Money.parse(discountText);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(frame, "Invalid discount");
+                return;
+            }
+            List<OrderLine> lines = new ArrayList<>(orderListModel.size());
+            for (int i = 0; i < orderListModel.size(); i++) {
+                lines.add(orderListModel.get(i));
+            }
+            Order order = new Order(orderType, tableNumber, discountMinor, lines);
+            if (order.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, "Add items to the order first");
+                return;
+            }
+            SessionManager.Principal cashier = currentUser.get();
+            db.submit(busyPanel, "Generating bill...", conn -> billingService.placeOrder(conn, order, hold, cashier), receipt -> {
+                billArea.setText(formatBill(receipt));
 
                 // Clear order
                 orderListModel.clear();
                 discountField.setText("");
                 tableNumberField.setText("");
+            }, ex -> JOptionPane.showMessageDialog(frame, ex instanceof IllegalStateException || ex instanceof IllegalArgumentException
+                    ? ex.getMessage() : "Error generating bill: " + ex.getMessage()));
+        });
 
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(frame, "Invalid discount");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error generating bill: " + ex.getMessage());
+        // Abandon the order and free its reserved stock
+        clearOrderButton.addActionListener(e -> {
+            if (busyPanel.isBusy()) {
+                return;
             }
+            stockLedger.release(hold);
+            orderListModel.clear();
+            discountField.setText("");
         });
 
-        JPanel inputPanel = new JPanel(new GridLayout(6, 2, 5, 5));
+        JPanel inputPanel = new JPanel(new GridLayout(7, 2, 5, 5));
         inputPanel.add(new JLabel("Order Type:"));
         inputPanel.add(orderTypeCombo);
         inputPanel.add(new JLabel("Table Number:"));
@@ -201,14 +160,81 @@ public class OrderBilling {
         inputPanel.add(itemCombo);
         inputPanel.add(new JLabel("Quantity:"));
         inputPanel.add(quantityField);
-        inputPanel.add(new JLabel("Discount (Rs.):"));
+        inputPanel.add(discountLabel);
         inputPanel.add(discountField);
         inputPanel.add(addItemButton);
         inputPanel.add(generateBillButton);
+        inputPanel.add(clearOrderButton);
+
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(inputPanel, BorderLayout.CENTER);
+        northPanel.add(busyPanel, BorderLayout.SOUTH);
 
-        panel.add(inputPanel, BorderLayout.NORTH);
+        panel.add(northPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(orderList), BorderLayout.CENTER);
         panel.add(new JScrollPane(billArea), BorderLayout.SOUTH);
         return panel;
     }
+
+    // Refresh the item combo from the catalog, keeping the current selection
+    private void refreshItemCombo(JComboBox<MenuItem> itemCombo, BusyPanel busyPanel) {
+        db.submit(busyPanel, "Loading menu...", conn -> {
+            List<MenuItem> items = new ArrayList<>();
+            for (MenuItem item : catalog.snapshot(conn).items()) {
+                if (item.isAvailable()) {
+                    items.add(item);
+                }
+            }
+            return items;
+        }, items -> {
+            MenuItem selected = (MenuItem) itemCombo.getSelectedItem();
+            itemCombo.removeAllItems();
+            for (MenuItem item : items) {
+                itemCombo.addItem(item);
+                if (selected != null && item.getId() == selected.getId()) {
+                    itemCombo.setSelectedItem(item);
+                }
+            }
+        }, ex -> JOptionPane.showMessageDialog(frame, "Error loading menu items: " + ex.getMessage()));
+    }
+
+    // Label the discount field with the current currency
+    private void refreshCurrency(JLabel discountLabel) {
+        discountLabel.setText("Discount (" + settings.current().getCurrency() + "):");
+    }
+
+    // Render a committed order as the printed bill, in the settings it was billed under
+    private static String formatBill(BillingService.Receipt receipt) {
+        Order order = receipt.getOrder();
+        SettingsService.Snapshot billedUnder = receipt.getSettings();
+        String currency = billedUnder.getCurrency();
+        StringBuilder bill = new StringBuilder();
+        bill.append("=== ").append(billedUnder.getCafeName()).append(" ===\n");
+        bill.append("Order ID: ").append(receipt.getOrderId()).append("\n");
+        bill.append("Date: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(receipt.getOrderDate())).append("\n");
+        bill.append("Type: ").append(order.getOrderType()).append("\n");
+        if (order.getOrderType().equals("Table")) {
+            bill.append("Table: ").append(order.getTableNumber()).append("\n");
+        }
+        if (receipt.getCashier() != null) {
+            bill.append("Cashier: ").append(receipt.getCashier().getUsername()).append("\n");
+        }
+        bill.append("\nItems:\n");
+        for (OrderLine line : order.getLines()) {
+            bill.append(formatLine(line, currency)).append("\n");
+        }
+        Money.append(bill.append("\nSubtotal: ").append(currency), order.getSubtotalMinor()).append("\n");
+        billedUnder.getCalculator().appendGstLabel(bill.append("GST ("));
+        Money.append(bill.append("): ").append(currency), receipt.getGstMinor()).append("\n");
+        Money.append(bill.append("Discount: ").append(currency), order.getDiscountMinor()).append("\n");
+        Money.append(bill.append("Total: ").append(currency), receipt.getTotalMinor()).append("\n");
+        return bill.toString();
+    }
+
+    // Render an order line for the list and the bill
+    private static String formatLine(OrderLine line, String currency) {
+        StringBuilder text = new StringBuilder(48).append(line.getItemId()).append(": ").append(line.getName())
+                .append(" x").append(line.getQuantity()).append(" (").append(currency);
+        return Money.append(text, line.getLineTotalMinor()).append(')').toString();
+    }
 }
\ No newline at end of file
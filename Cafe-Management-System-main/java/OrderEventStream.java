@@ -0,0 +1,94 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Committed orders as an in-process stream. Publishers claim a sequence number and write the event
+// into a fixed ring, so publishing never blocks or allocates beyond the event itself. Each
+// subscriber reads at its own pace from its own cursor. A subscriber that falls more than one ring
+// behind skips ahead and counts what it missed instead of holding up the tills.
+public class OrderEventStream {
+    private final AtomicReferenceArray<Event> ring;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // One committed order at its position in the stream
+    private static final class Event {
+        private final long sequence;
+        private final BillingService.Receipt receipt;
+
+        Event(long sequence, BillingService.Receipt receipt) {
+            this.sequence = sequence;
+            this.receipt = receipt;
+        }
+    }
+
+    // A reader's position in the stream; use from one thread
+    public final class Subscription {
+        private long next;
+        private long dropped;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        // Hand every event published since the last call to the handler; returns how many were handled
+        public int drain(Consumer<BillingService.Receipt> handler) {
+            int capacity = mask + 1;
+            long end = nextSequence.get();
+            int handled = 0;
+            while (next < end) {
+                if (end - next > capacity) {
+                    skipTo(end - capacity);
+                }
+                Event event = ring.get((int) (next & mask));
+                if (event == null || event.sequence < next) {
+                    // Claimed but not written yet; picked up on the next drain
+                    break;
+                }
+                if (event.sequence > next) {
+                    // Overwritten while reading: the publishers have lapped this subscriber
+                    skipTo(Math.max(next + 1, nextSequence.get() - capacity));
+                    end = nextSequence.get();
+                    continue;
+                }
+                handler.accept(event.receipt);
+                next++;
+                handled++;
+            }
+            return handled;
+        }
+
+        // Events this subscriber missed by falling a whole ring behind
+        public long getDroppedCount() {
+            return dropped;
+        }
+
+        private void skipTo(long sequence) {
+            dropped += sequence - next;
+            next = sequence;
+        }
+    }
+
+    // Constructor; capacity is rounded up to a power of two
+    public OrderEventStream(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // Publish an order after it has committed
+    public void publish(BillingService.Receipt receipt) {
+        long sequence = nextSequence.getAndIncrement();
+        ring.set((int) (sequence & mask), new Event(sequence, receipt));
+    }
+
+    // Subscribe to orders published from now on
+    public Subscription subscribe() {
+        return new Subscription(nextSequence.get());
+    }
+
+    // Orders published since startup
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+}
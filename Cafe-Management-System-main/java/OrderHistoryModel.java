@@ -0,0 +1,85 @@
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class OrderHistoryModel extends PagedTableModel<OrderRepository.OrderRow> {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"ID", "Date", "Type", "Table", "Cashier", "Items", "Subtotal", "GST", "Discount", "Total"};
+
+    private final DbExecutor db;
+    private final BusyPanel busyPanel;
+    private final Consumer<OrderRepository.RangeTotals> onTotals;
+    private final OrderRepository orderRepository = new OrderRepository();
+    private LocalDate from;
+    private LocalDate toExclusive;
+    private String currency = "";
+
+    // Constructor; onTotals receives the totals for each new range on the EDT, or null if they could not be read
+    public OrderHistoryModel(DbExecutor db, BusyPanel busyPanel, int pageSize, Consumer<OrderRepository.RangeTotals> onTotals) {
+        super(db, busyPanel, pageSize, "orders");
+        this.db = db;
+        this.busyPanel = busyPanel;
+        this.onTotals = onTotals;
+    }
+
+    // Show orders dated [from, toExclusive): drop loaded rows, load the first page and ask the database for the totals (EDT only)
+    public void setRange(LocalDate from, LocalDate toExclusive, String currency) {
+        this.from = from;
+        this.toExclusive = toExclusive;
+        this.currency = currency;
+        int expected = reload();
+        db.submit(busyPanel, "Totalling orders...", conn -> orderRepository.findTotals(conn, from, toExclusive), totals -> {
+            if (isCurrent(expected)) {
+                onTotals.accept(totals);
+            }
+        }, ex -> {
+            if (isCurrent(expected)) {
+                onTotals.accept(null);
+            }
+        });
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    protected Object valueAt(OrderRepository.OrderRow row, int columnIndex) {
+        switch (columnIndex) {
+            case 0: return row.getId();
+            case 1: return String.valueOf(row.getOrderDate());
+            case 2: return row.getOrderType();
+            case 3: return row.getTableNumber();
+            case 4: return row.getCashier() != null ? row.getCashier() : "";
+            case 5: return row.getItems();
+            case 6: return money(row.getSubtotalMinor());
+            case 7: return money(row.getGstMinor());
+            case 8: return money(row.getDiscountMinor());
+            default: return money(row.getTotalMinor());
+        }
+    }
+
+    private String money(long minor) {
+        return Money.append(new StringBuilder(currency), minor).toString();
+    }
+
+    // The page after the last loaded order, using a keyset on id
+    @Override
+    protected DbExecutor.SqlWork<List<OrderRepository.OrderRow>> pageQuery(OrderRepository.OrderRow last, int pageSize) {
+        LocalDate pageFrom = from;
+        LocalDate pageTo = toExclusive;
+        int afterId = last == null ? 0 : last.getId();
+        return conn -> orderRepository.findPage(conn, pageFrom, pageTo, afterId, pageSize);
+    }
+}
@@ -0,0 +1,319 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+public class OrderIngestServer implements AutoCloseable {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // orders.table_number is VARCHAR(10)
+    private static final int MAX_TABLE_NUMBER_LENGTH = 10;
+
+    private final ConnectionPool pool;
+    private final MenuCatalog catalog;
+    private final BillingService billingService;
+    private final SessionManager sessions;
+    private final boolean requireLogin;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Constructor; binds but does not start serving. With requireLogin, orders without a session token are refused.
+    public OrderIngestServer(ConnectionPool pool, MenuCatalog catalog, BillingService billingService, SessionManager sessions,
+                             boolean requireLogin, String host, int port) throws IOException {
+        this.pool = pool;
+        this.catalog = catalog;
+        this.billingService = billingService;
+        this.sessions = sessions;
+        this.requireLogin = requireLogin;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        // One virtual thread per request where available; the connection pool bounds database concurrency
+        this.executor = DbExecutor.newWorkerExecutor("ingest");
+        server.setExecutor(executor);
+        server.createContext("/health", exchange -> handle(exchange, this::health));
+        server.createContext("/menu", exchange -> handle(exchange, this::menu));
+        server.createContext("/orders", exchange -> handle(exchange, this::orders));
+        server.createContext("/login", exchange -> handle(exchange, this::login));
+        server.createContext("/logout", exchange -> handle(exchange, this::logout));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    // A request the server refuses, with the status to answer it with
+    private static final class IngestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        IngestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Handlers reject requests with IngestException; any other failure is a server fault
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            handler.handle(exchange);
+        } catch (IngestException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (SQLException e) {
+            sendError(exchange, 503, "Database error: " + e.getMessage());
+        } catch (Exception e) {
+            sendError(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // GET /health
+    private void health(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("{\"status\":\"ok\",\"activeConnections\":")
+                .append(pool.getActiveCount()).append(",\"idleConnections\":").append(pool.getIdleCount()).append('}');
+        send(exchange, 200, json);
+    }
+
+    // GET /menu: available items with prices in paise
+    private void menu(HttpExchange exchange) throws IOException, SQLException {
+        requireMethod(exchange, "GET");
+        MenuCatalog.Snapshot snapshot = catalog.cached();
+        if (snapshot == null) {
+            try (Connection conn = pool.getConnection()) {
+                snapshot = catalog.snapshot(conn);
+            }
+        }
+        StringBuilder json = new StringBuilder("{\"version\":").append(snapshot.getVersion()).append(",\"items\":[");
+        boolean first = true;
+        for (MenuItem item : snapshot.items()) {
+            if (!item.isAvailable()) {
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"id\":").append(item.getId()).append(",\"name\":");
+            Json.quote(json, item.getName()).append(",\"category\":");
+            Json.quote(json, item.getCategory()).append(",\"priceMinor\":").append(Money.ofDouble(item.getPrice())).append('}');
+        }
+        send(exchange, 200, json.append("]}"));
+    }
+
+    // POST /login {"username":"cashier1","password":"..."}: a session token for the Authorization header
+    private void login(HttpExchange exchange) throws IOException, SQLException {
+        requireMethod(exchange, "POST");
+        Map<?, ?> body = object(readJson(exchange), "Request body");
+        String username = string(body, "username");
+        String password = string(body, "password");
+        if (username == null || password == null) {
+            throw new IngestException(400, "username and password are required");
+        }
+        SessionManager.Session session;
+        try (Connection conn = pool.getConnection()) {
+            session = sessions.login(conn, username, password);
+        }
+        if (session == null) {
+            throw new IngestException(401, "Invalid credentials");
+        }
+        StringBuilder json = new StringBuilder("{\"token\":");
+        Json.quote(json, session.getToken()).append(",\"username\":");
+        Json.quote(json, session.getPrincipal().getUsername()).append(",\"role\":");
+        Json.quote(json, session.getPrincipal().getRole()).append(",\"expiresAt\":").append(session.getExpiresAtMillis()).append('}');
+        send(exchange, 200, json);
+    }
+
+    // POST /logout with the session's Authorization header
+    private void logout(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        sessions.logout(bearerToken(exchange));
+        send(exchange, 200, "{\"status\":\"ok\"}");
+    }
+
+    // The cashier for "Authorization: Bearer <token>"; null without the header unless login is required
+    private SessionManager.Principal cashier(HttpExchange exchange) {
+        String token = bearerToken(exchange);
+        if (token == null) {
+            if (requireLogin) {
+                throw new IngestException(401, "Login required");
+            }
+            return null;
+        }
+        SessionManager.Session session = sessions.get(token);
+        if (session == null) {
+            throw new IngestException(401, "Session expired or unknown");
+        }
+        return session.getPrincipal();
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    // POST /orders {"orderType":"Table","tableNumber":"4","discount":"10.00","lines":[{"itemId":1,"quantity":2}]}
+    private void orders(HttpExchange exchange) throws IOException, SQLException {
+        requireMethod(exchange, "POST");
+        SessionManager.Principal cashier = cashier(exchange);
+        Map<?, ?> body = object(readJson(exchange), "Request body");
+        String orderType = string(body, "orderType");
+        if (orderType == null) {
+            orderType = "Takeaway";
+        } else if (!orderType.equals("Table") && !orderType.equals("Takeaway")) {
+            throw new IngestException(400, "orderType must be Table or Takeaway");
+        }
+        String tableNumber = "N/A";
+        if (orderType.equals("Table")) {
+            Object table = body.get("tableNumber");
+            tableNumber = table instanceof BigDecimal ? ((BigDecimal) table).toPlainString() : string(body, "tableNumber");
+            if (tableNumber == null || tableNumber.isBlank() || tableNumber.length() > MAX_TABLE_NUMBER_LENGTH) {
+                throw new IngestException(400, "tableNumber is required for Table orders, up to " + MAX_TABLE_NUMBER_LENGTH + " characters");
+            }
+        }
+        Object discount = body.get("discount");
+        long discountMinor = 0;
+        if (discount instanceof String || discount instanceof BigDecimal) {
+            try {
+                discountMinor = Money.parse(discount.toString());
+            } catch (NumberFormatException e) {
+                throw new IngestException(400, "discount must be an amount with at most two decimals");
+            }
+        } else if (discount != null) {
+            throw new IngestException(400, "discount must be an amount");
+        }
+        Object linesValue = body.get("lines");
+        if (!(linesValue instanceof List) || ((List<?>) linesValue).isEmpty()) {
+            throw new IngestException(400, "Order has no lines");
+        }
+        List<?> lines = (List<?>) linesValue;
+        int[] itemIds = new int[lines.size()];
+        int[] quantities = new int[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            Map<?, ?> line = object(lines.get(i), "Line " + (i + 1));
+            itemIds[i] = integer(line, "itemId");
+            quantities[i] = integer(line, "quantity");
+            if (quantities[i] <= 0) {
+                throw new IngestException(400, "Line " + (i + 1) + ": quantity must be positive");
+            }
+        }
+
+        BillingService.Receipt receipt;
+        try (Connection conn = pool.getConnection()) {
+            MenuCatalog.Snapshot menu = catalog.snapshot(conn);
+            for (int itemId : itemIds) {
+                MenuItem item = menu.get(itemId);
+                if (item == null || !item.isAvailable()) {
+                    throw new IngestException(400, "Unknown or unavailable item ID " + itemId);
+                }
+            }
+            Order order = billingService.buildOrder(conn, orderType, tableNumber, discountMinor, itemIds, quantities);
+            if (discountMinor < 0 || discountMinor > order.getSubtotalMinor()) {
+                throw new IngestException(400, "discount must be between zero and the subtotal");
+            }
+            try {
+                receipt = billingService.placeOrder(conn, order, cashier);
+            } catch (InsufficientStockException e) {
+                throw new IngestException(409, e.getMessage());
+            }
+        }
+        StringBuilder json = new StringBuilder("{\"orderId\":").append(receipt.getOrderId())
+                .append(",\"subtotalMinor\":").append(receipt.getOrder().getSubtotalMinor())
+                .append(",\"gstMinor\":").append(receipt.getGstMinor())
+                .append(",\"discountMinor\":").append(receipt.getOrder().getDiscountMinor())
+                .append(",\"totalMinor\":").append(receipt.getTotalMinor())
+                .append(",\"orderDate\":");
+        Json.quote(json, receipt.getOrderDate().toString()).append('}');
+        send(exchange, 201, json);
+    }
+
+    private static Map<?, ?> object(Object value, String what) {
+        if (!(value instanceof Map)) {
+            throw new IngestException(400, what + " must be a JSON object");
+        }
+        return (Map<?, ?>) value;
+    }
+
+    // A string field, or null when absent
+    private static String string(Map<?, ?> object, String field) {
+        Object value = object.get(field);
+        if (value != null && !(value instanceof String)) {
+            throw new IngestException(400, field + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int integer(Map<?, ?> object, String field) {
+        Object value = object.get(field);
+        if (!(value instanceof BigDecimal)) {
+            throw new IngestException(400, field + " must be a number");
+        }
+        try {
+            return ((BigDecimal) value).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IngestException(400, field + " must be a whole number");
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+            throw new IngestException(405, method + " required");
+        }
+    }
+
+    private static Object readJson(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IngestException(413, "Request body too large");
+            }
+            body = new String(bytes, StandardCharsets.UTF_8);
+        }
+        try {
+            return Json.parse(body);
+        } catch (IllegalArgumentException e) {
+            throw new IngestException(400, "Malformed JSON: " + e.getMessage());
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.quote(json, message).append('}');
+        send(exchange, status, json);
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// order_items for a date range as parallel primitive arrays, one entry per line, with each order's
+// lines next to each other. Items are renumbered densely (0..itemCount-1) so analytics can count
+// into plain arrays instead of maps. About 20 bytes per line, so years of orders fit in memory.
+public final class OrderItemColumns {
+    private static final String LOAD = "SELECT oi.order_id, oi.item_id, oi.quantity, COALESCE(oi.unit_price, m.price, 0) " +
+            "FROM orders o " +
+            "JOIN order_items oi ON o.id = oi.order_id " +
+            "LEFT JOIN menu_items m ON oi.item_id = m.id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? " +
+            "ORDER BY oi.order_id";
+
+    // Lines of order b are [orderStart[b], orderStart[b + 1])
+    final int[] orderStart;
+    final int[] item;
+    final int[] quantity;
+    final long[] revenueMinor;
+    // Dense item number to menu_items.id
+    final int[] itemIds;
+
+    OrderItemColumns(int[] orderStart, int[] item, int[] quantity, long[] revenueMinor, int[] itemIds) {
+        this.orderStart = orderStart;
+        this.item = item;
+        this.quantity = quantity;
+        this.revenueMinor = revenueMinor;
+        this.itemIds = itemIds;
+    }
+
+    // Read the lines of orders dated [from, toExclusive), streaming rows into the arrays
+    public static OrderItemColumns load(Connection conn, LocalDate from, LocalDate toExclusive) throws SQLException {
+        int lines = 0;
+        int orders = 0;
+        int[] orderStart = new int[1024];
+        int[] item = new int[4096];
+        int[] quantity = new int[4096];
+        long[] revenue = new long[4096];
+        int[] itemIds = new int[64];
+        int itemCount = 0;
+        // menu_items.id to dense number + 1 (0 = not seen yet)
+        int[] denseById = new int[256];
+        try (PreparedStatement ps = conn.prepareStatement(LOAD, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(StorageBackend.forConnection(conn).getStreamingFetchSize());
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(toExclusive.atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int lastOrder = 0;
+                while (rs.next()) {
+                    if ((lines & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+                        throw new SQLException("Analysis cancelled");
+                    }
+                    int orderId = rs.getInt(1);
+                    if (orders == 0 || orderId != lastOrder) {
+                        if (orders + 1 >= orderStart.length) {
+                            orderStart = Arrays.copyOf(orderStart, orderStart.length * 2);
+                        }
+                        orderStart[orders++] = lines;
+                        lastOrder = orderId;
+                    }
+                    int itemId = rs.getInt(2);
+                    if (itemId >= denseById.length) {
+                        denseById = Arrays.copyOf(denseById, Math.max(denseById.length * 2, itemId + 1));
+                    }
+                    if (denseById[itemId] == 0) {
+                        if (itemCount == itemIds.length) {
+                            itemIds = Arrays.copyOf(itemIds, itemCount * 2);
+                        }
+                        itemIds[itemCount++] = itemId;
+                        denseById[itemId] = itemCount;
+                    }
+                    if (lines == item.length) {
+                        item = Arrays.copyOf(item, lines * 2);
+                        quantity = Arrays.copyOf(quantity, lines * 2);
+                        revenue = Arrays.copyOf(revenue, lines * 2);
+                    }
+                    item[lines] = denseById[itemId] - 1;
+                    quantity[lines] = rs.getInt(3);
+                    revenue[lines] = (long) quantity[lines] * Money.ofDecimal(rs.getBigDecimal(4));
+                    lines++;
+                }
+            }
+        }
+        orderStart[orders] = lines;
+        return new OrderItemColumns(Arrays.copyOf(orderStart, orders + 1), Arrays.copyOf(item, lines), Arrays.copyOf(quantity, lines),
+                Arrays.copyOf(revenue, lines), Arrays.copyOf(itemIds, itemCount));
+    }
+
+    // Lines of first followed by those of second, with second's items renumbered to match
+    static OrderItemColumns concat(OrderItemColumns first, OrderItemColumns second) {
+        int orders = first.getOrderCount();
+        int lines = first.getLineCount();
+        int[] orderStart = Arrays.copyOf(first.orderStart, orders + second.orderStart.length);
+        for (int b = 0; b < second.orderStart.length; b++) {
+            orderStart[orders + b] = lines + second.orderStart[b];
+        }
+        Map<Integer, Integer> denseById = new HashMap<>();
+        for (int i = 0; i < first.itemIds.length; i++) {
+            denseById.put(first.itemIds[i], i);
+        }
+        int[] itemIds = Arrays.copyOf(first.itemIds, first.itemIds.length + second.itemIds.length);
+        int itemCount = first.itemIds.length;
+        int[] remap = new int[second.itemIds.length];
+        for (int i = 0; i < remap.length; i++) {
+            Integer dense = denseById.get(second.itemIds[i]);
+            if (dense == null) {
+                dense = itemCount;
+                itemIds[itemCount++] = second.itemIds[i];
+            }
+            remap[i] = dense;
+        }
+        int[] item = Arrays.copyOf(first.item, lines + second.getLineCount());
+        for (int l = 0; l < second.getLineCount(); l++) {
+            item[lines + l] = remap[second.item[l]];
+        }
+        int[] quantity = Arrays.copyOf(first.quantity, item.length);
+        System.arraycopy(second.quantity, 0, quantity, lines, second.getLineCount());
+        long[] revenue = Arrays.copyOf(first.revenueMinor, item.length);
+        System.arraycopy(second.revenueMinor, 0, revenue, lines, second.getLineCount());
+        return new OrderItemColumns(orderStart, item, quantity, revenue, Arrays.copyOf(itemIds, itemCount));
+    }
+
+    public int getOrderCount() {
+        return orderStart.length - 1;
+    }
+
+    public int getLineCount() {
+        return item.length;
+    }
+
+    public int getItemCount() {
+        return itemIds.length;
+    }
+}
@@ -0,0 +1,37 @@
+public final class OrderLine {
+    private final int itemId;
+    private final String name;
+    private final int quantity;
+    private final long unitPriceMinor;
+
+    // Constructor; prices are in minor units (paise)
+    public OrderLine(int itemId, String name, int quantity, long unitPriceMinor) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        this.itemId = itemId;
+        this.name = name;
+        this.quantity = quantity;
+        this.unitPriceMinor = unitPriceMinor;
+    }
+
+    public int getItemId() {
+        return itemId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getUnitPriceMinor() {
+        return unitPriceMinor;
+    }
+
+    public long getLineTotalMinor() {
+        return unitPriceMinor * quantity;
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderRepository {
+    private static final String INSERT = "INSERT INTO orders (order_type, table_number, subtotal, gst, discount, total, order_date, user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ITEM = "INSERT INTO order_items (order_id, item_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+    private static final String ORDERS_IN_RANGE = "SELECT o.id, o.order_type, o.table_number, o.subtotal, o.gst, o.discount, o.total, o.order_date, " +
+            "GROUP_CONCAT(CONCAT(oi.quantity, ' x ', m.name)) as items, u.username " +
+            "FROM orders o " +
+            "JOIN order_items oi ON o.id = oi.order_id " +
+            "JOIN menu_items m ON oi.item_id = m.id " +
+            "LEFT JOIN users u ON o.user_id = u.id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? ";
+    private static final String GROUP_ORDERS = "GROUP BY o.id, o.order_type, o.table_number, o.subtotal, o.gst, o.discount, o.total, o.order_date, u.username ";
+    private static final String ORDERS_WITH_ITEMS = ORDERS_IN_RANGE + GROUP_ORDERS + "ORDER BY o.id";
+    private static final String ORDERS_PAGE = ORDERS_IN_RANGE + "AND o.id > ? " + GROUP_ORDERS + "ORDER BY o.id LIMIT ?";
+    private static final String RANGE_TOTALS = "SELECT COUNT(*), COALESCE(SUM(subtotal), 0), COALESCE(SUM(gst), 0), COALESCE(SUM(discount), 0), " +
+            "COALESCE(SUM(total), 0) FROM orders WHERE order_date >= ? AND order_date < ?";
+
+    // One order with its items flattened to "2 x Coffee,1 x Sandwich"
+    public static final class OrderRow {
+        private int id;
+        private String orderType;
+        private String tableNumber;
+        private long subtotalMinor;
+        private long gstMinor;
+        private long discountMinor;
+        private long totalMinor;
+        private Timestamp orderDate;
+        private String items;
+        private String cashier;
+
+        public int getId() {
+            return id;
+        }
+
+        public String getOrderType() {
+            return orderType;
+        }
+
+        public String getTableNumber() {
+            return tableNumber;
+        }
+
+        public long getSubtotalMinor() {
+            return subtotalMinor;
+        }
+
+        public long getGstMinor() {
+            return gstMinor;
+        }
+
+        public long getDiscountMinor() {
+            return discountMinor;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+
+        public Timestamp getOrderDate() {
+            return orderDate;
+        }
+
+        public String getItems() {
+            return items;
+        }
+
+        // Username of the user who placed the order, or null if none was recorded
+        public String getCashier() {
+            return cashier;
+        }
+    }
+
+    // Order count and money totals for a date range, summed by the database
+    public static final class RangeTotals {
+        private final int orderCount;
+        private final long subtotalMinor;
+        private final long gstMinor;
+        private final long discountMinor;
+        private final long totalMinor;
+
+        RangeTotals(int orderCount, long subtotalMinor, long gstMinor, long discountMinor, long totalMinor) {
+            this.orderCount = orderCount;
+            this.subtotalMinor = subtotalMinor;
+            this.gstMinor = gstMinor;
+            this.discountMinor = discountMinor;
+            this.totalMinor = totalMinor;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        public long getSubtotalMinor() {
+            return subtotalMinor;
+        }
+
+        public long getGstMinor() {
+            return gstMinor;
+        }
+
+        public long getDiscountMinor() {
+            return discountMinor;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+    }
+
+    // Receives each order in turn; the row object is reused, so copy what must outlive the call
+    public interface OrderHandler {
+        void order(OrderRow row) throws SQLException, IOException;
+    }
+
+    // Insert the orders row and return its generated id; userId is the cashier, or null
+    public int insert(Connection conn, Order order, long gstMinor, long totalMinor, Timestamp orderDate, Integer userId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, order.getOrderType());
+            ps.setString(2, order.getTableNumber());
+            ps.setBigDecimal(3, Money.toDecimal(order.getSubtotalMinor()));
+            ps.setBigDecimal(4, Money.toDecimal(gstMinor));
+            ps.setBigDecimal(5, Money.toDecimal(order.getDiscountMinor()));
+            ps.setBigDecimal(6, Money.toDecimal(totalMinor));
+            ps.setTimestamp(7, orderDate);
+            if (userId != null) {
+                ps.setInt(8, userId);
+            } else {
+                ps.setNull(8, Types.INTEGER);
+            }
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("No order ID returned");
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Insert every order_items row in one batch, with the unit price charged. Lines for the same item share a row
+    // unless the item was priced differently between them, e.g. a menu edit while the order was open.
+    public void insertItems(Connection conn, int orderId, Order order) throws SQLException {
+        List<OrderLine> lines = order.getLines();
+        boolean[] merged = new boolean[lines.size()];
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_ITEM)) {
+            for (int i = 0; i < lines.size(); i++) {
+                if (merged[i]) {
+                    continue;
+                }
+                OrderLine line = lines.get(i);
+                int quantity = line.getQuantity();
+                for (int j = i + 1; j < lines.size(); j++) {
+                    OrderLine other = lines.get(j);
+                    if (other.getItemId() == line.getItemId() && other.getUnitPriceMinor() == line.getUnitPriceMinor()) {
+                        quantity += other.getQuantity();
+                        merged[j] = true;
+                    }
+                }
+                ps.setInt(1, orderId);
+                ps.setInt(2, line.getItemId());
+                ps.setInt(3, quantity);
+                ps.setBigDecimal(4, Money.toDecimal(line.getUnitPriceMinor()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Stream orders dated [from, toExclusive) in id order without holding the result in memory.
+    // Returns the number of orders handled.
+    public int forEachOrder(Connection conn, LocalDate from, LocalDate toExclusive, OrderHandler handler) throws SQLException, IOException {
+        int count = 0;
+        try (PreparedStatement ps = conn.prepareStatement(ORDERS_WITH_ITEMS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(StorageBackend.forConnection(conn).getStreamingFetchSize());
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(toExclusive.atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                OrderRow row = new OrderRow();
+                while (rs.next()) {
+                    handler.order(readRow(rs, row));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Up to limit orders dated [from, toExclusive) with ids above afterId, in id order; a keyset page for
+    // tables that load as they scroll (pass 0 for the first page)
+    public List<OrderRow> findPage(Connection conn, LocalDate from, LocalDate toExclusive, int afterId, int limit) throws SQLException {
+        List<OrderRow> page = new ArrayList<>(limit);
+        try (PreparedStatement ps = conn.prepareStatement(ORDERS_PAGE)) {
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(toExclusive.atStartOfDay()));
+            ps.setInt(3, afterId);
+            ps.setInt(4, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    page.add(readRow(rs, new OrderRow()));
+                }
+            }
+        }
+        return page;
+    }
+
+    // Totals for orders dated [from, toExclusive) without reading the orders themselves
+    public RangeTotals findTotals(Connection conn, LocalDate from, LocalDate toExclusive) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(RANGE_TOTALS)) {
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(toExclusive.atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new RangeTotals(rs.getInt(1), Money.ofDecimal(rs.getBigDecimal(2)), Money.ofDecimal(rs.getBigDecimal(3)),
+                        Money.ofDecimal(rs.getBigDecimal(4)), Money.ofDecimal(rs.getBigDecimal(5)));
+            }
+        }
+    }
+
+    private static OrderRow readRow(ResultSet rs, OrderRow row) throws SQLException {
+        row.id = rs.getInt(1);
+        row.orderType = rs.getString(2);
+        row.tableNumber = rs.getString(3);
+        row.subtotalMinor = Money.ofDecimal(rs.getBigDecimal(4));
+        row.gstMinor = Money.ofDecimal(rs.getBigDecimal(5));
+        row.discountMinor = Money.ofDecimal(rs.getBigDecimal(6));
+        row.totalMinor = Money.ofDecimal(rs.getBigDecimal(7));
+        row.orderDate = rs.getTimestamp(8);
+        row.items = rs.getString(9);
+        row.cashier = rs.getString(10);
+        return row;
+    }
+}
@@ -0,0 +1,98 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Table rows loaded a page at a time as the table scrolls, each page keyed on the last row already loaded
+public abstract class PagedTableModel<R> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    // After a failed page, scrolling tries it again once this has passed, so a dead database is not hammered
+    private static final long RETRY_DELAY_MILLIS = 5000;
+
+    private final DbExecutor db;
+    private final BusyPanel busyPanel;
+    private final int pageSize;
+    private final String rowsLabel;
+    private final List<R> rows = new ArrayList<>();
+    private boolean loading;
+    private boolean exhausted = true;
+    private long retryAtMillis;
+    private int generation;
+
+    // Constructor; rowsLabel names the rows in progress and error messages, e.g. "orders"
+    protected PagedTableModel(DbExecutor db, BusyPanel busyPanel, int pageSize, String rowsLabel) {
+        this.db = db;
+        this.busyPanel = busyPanel;
+        this.pageSize = pageSize;
+        this.rowsLabel = rowsLabel;
+    }
+
+    // The query for up to pageSize rows after last, or the first page when last is null. Called on the EDT,
+    // so the returned work must capture any filter it reads rather than read fields from the worker thread.
+    protected abstract DbExecutor.SqlWork<List<R>> pageQuery(R last, int pageSize);
+
+    // One cell of a loaded row
+    protected abstract Object valueAt(R row, int columnIndex);
+
+    // Drop loaded rows and load the first page (EDT only); returns a generation for isCurrent
+    protected int reload() {
+        generation++;
+        rows.clear();
+        loading = false;
+        exhausted = false;
+        retryAtMillis = 0;
+        fireTableDataChanged();
+        loadNextPage();
+        return generation;
+    }
+
+    // Whether work started at this generation still matches the rows on screen
+    protected boolean isCurrent(int expected) {
+        return expected == generation;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        // Rendering a row near the end of what is loaded pulls in the next page
+        if (rowIndex >= rows.size() - pageSize / 4) {
+            loadNextPage();
+        }
+        return valueAt(rows.get(rowIndex), columnIndex);
+    }
+
+    private void loadNextPage() {
+        if (loading || exhausted || System.currentTimeMillis() < retryAtMillis) {
+            return;
+        }
+        loading = true;
+        int expected = generation;
+        R last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        db.submit(busyPanel, "Loading " + rowsLabel + "...", pageQuery(last, pageSize), page -> {
+            if (expected != generation) {
+                return;
+            }
+            loading = false;
+            if (page.size() < pageSize) {
+                exhausted = true;
+            }
+            if (!page.isEmpty()) {
+                int first = rows.size();
+                rows.addAll(page);
+                fireTableRowsInserted(first, rows.size() - 1);
+            }
+        }, ex -> {
+            if (expected != generation) {
+                return;
+            }
+            // Not exhausted: the rows after this page are still there, and the next scroll asks for them again
+            loading = false;
+            retryAtMillis = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            JOptionPane.showMessageDialog(busyPanel, "Error loading " + rowsLabel + ": " + ex.getMessage());
+        });
+    }
+}
@@ -0,0 +1,337 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Times every statement executed through the connection pool. A statement is named
+// after the method that prepared it (e.g. "MenuRepository.findAll"), so all the SQL
+// variants one repository method builds share a histogram. Figures are published as
+// JMX MBeans under "cafe:" and, optionally, as a periodic log line per statement.
+public class QueryMetrics implements QueryMetricsMBean, AutoCloseable {
+    private static final String DOMAIN = "cafe";
+    private static final int MAX_CACHED_SQL = 1000;
+
+    private final Map<String, QueryStats> byName = new ConcurrentHashMap<>();
+    private final Map<String, QueryStats> bySql = new ConcurrentHashMap<>();
+    private final MBeanServer mbeanServer;
+    private final List<ObjectName> registered = new ArrayList<>();
+    private ScheduledExecutorService logger;
+
+    // Constructor; pass null to keep the figures out of JMX
+    public QueryMetrics(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+        register(this, "type=QueryMetrics");
+    }
+
+    // Metrics published on the platform MBean server
+    public static QueryMetrics platform() {
+        return new QueryMetrics(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    // Print the figures for each statement that ran in the last interval
+    public synchronized void startLogging(long intervalSeconds) {
+        if (logger != null || intervalSeconds <= 0) {
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "query-metrics-log");
+            t.setDaemon(true);
+            return t;
+        });
+        logger.scheduleAtFixedRate(() -> {
+            for (String line : drainIntervals()) {
+                System.out.println("query " + line);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Wrap a prepared statement from the pool, noting whether the pool's statement cache supplied it
+    Statement instrument(PreparedStatement stmt, String sql, boolean cacheHit) {
+        Statement wrapped = instrument(stmt, sql);
+        statsFor(sql).recordPrepare(cacheHit);
+        return wrapped;
+    }
+
+    // Wrap a statement from the pool so its executions are recorded; sql is null for createStatement()
+    Statement instrument(Statement stmt, String sql) {
+        Class<?> type = stmt instanceof CallableStatement ? CallableStatement.class
+                : stmt instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        QueryStats prepared = sql == null ? null : statsFor(sql);
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[]{type}, new StatementHandler(stmt, prepared));
+    }
+
+    // Stats for the statement with this name
+    public QueryStats get(String name) {
+        return byName.get(name);
+    }
+
+    @Override
+    public String[] getSummary() {
+        List<String> names = new ArrayList<>(byName.keySet());
+        names.sort(null);
+        String[] lines = new String[names.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = byName.get(names.get(i)).summary();
+        }
+        return lines;
+    }
+
+    @Override
+    public double getStatementCacheHitRatio() {
+        long prepares = 0;
+        long hits = 0;
+        for (QueryStats stats : byName.values()) {
+            prepares += stats.getPrepareCount();
+            hits += stats.getCacheHitCount();
+        }
+        return prepares == 0 ? 0 : (double) hits / prepares;
+    }
+
+    @Override
+    public int getStatementCount() {
+        return byName.size();
+    }
+
+    @Override
+    public void reset() {
+        for (QueryStats stats : byName.values()) {
+            stats.reset();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (logger != null) {
+            logger.shutdownNow();
+        }
+        if (mbeanServer != null) {
+            for (ObjectName name : registered) {
+                try {
+                    mbeanServer.unregisterMBean(name);
+                } catch (JMException e) {
+                    // Already gone
+                }
+            }
+            registered.clear();
+        }
+    }
+
+    // Interval lines for the statements that ran, sorted by name
+    private synchronized List<String> drainIntervals() {
+        List<String> names = new ArrayList<>(byName.keySet());
+        names.sort(null);
+        List<String> lines = new ArrayList<>();
+        for (String name : names) {
+            String line = byName.get(name).drainInterval();
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    // Stats for a SQL string, naming it after the caller the first time it is seen
+    private QueryStats statsFor(String sql) {
+        QueryStats stats = bySql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        stats = named(callerName());
+        // Statements built with literal values would grow the cache without bound
+        if (bySql.size() < MAX_CACHED_SQL) {
+            bySql.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    private QueryStats named(String name) {
+        QueryStats stats = byName.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        QueryStats created = new QueryStats(name);
+        stats = byName.putIfAbsent(name, created);
+        if (stats != null) {
+            return stats;
+        }
+        register(created, "type=QueryStats,name=" + ObjectName.quote(name));
+        return created;
+    }
+
+    private synchronized void register(Object mbean, String properties) {
+        if (mbeanServer == null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (mbeanServer.isRegistered(name)) {
+                // Left behind by an earlier pool in this JVM
+                mbeanServer.unregisterMBean(name);
+            }
+            mbeanServer.registerMBean(mbean, name);
+            registered.add(name);
+        } catch (JMException e) {
+            System.err.println("Could not publish query metrics " + properties + ": " + e.getMessage());
+        }
+    }
+
+    // First application frame below the pool and JDBC proxies, as Class.method
+    private static String callerName() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> !isInfrastructure(f.getClassName()))
+                .findFirst()
+                .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()))
+                .orElse("unknown"));
+    }
+
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("QueryMetrics") || className.startsWith("ConnectionPool")
+                || className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("jdk.")
+                || className.startsWith("sun.") || className.startsWith("com.sun.");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // lambda$createPanel$3 -> createPanel
+    private static String methodName(String method) {
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', 7);
+            return end > 7 ? method.substring(7, end) : method;
+        }
+        return method;
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return Math.max(0, ((Number) result).longValue());
+        }
+        long total = 0;
+        if (result instanceof int[]) {
+            for (int n : (int[]) result) {
+                total += Math.max(0, n);
+            }
+        } else if (result instanceof long[]) {
+            for (long n : (long[]) result) {
+                total += Math.max(0, n);
+            }
+        }
+        return total;
+    }
+
+    // Times execute* calls and counts the rows they touch
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final QueryStats prepared;
+        private QueryStats last;
+
+        StatementHandler(Statement target, QueryStats prepared) {
+            this.target = target;
+            this.prepared = prepared;
+            this.last = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getResultSet":
+                    return wrap((ResultSet) call(method, args), last);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute")) {
+                return call(method, args);
+            }
+            QueryStats stats = prepared;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                stats = statsFor((String) args[0]);
+            } else if (stats == null) {
+                stats = named(callerName());
+            }
+            last = stats;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = call(method, args);
+                failed = false;
+                if (result instanceof ResultSet) {
+                    return wrap((ResultSet) result, stats);
+                }
+                stats.addRows(rowCount(result));
+                return result;
+            } finally {
+                stats.record(System.nanoTime() - start, failed);
+            }
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static ResultSet wrap(ResultSet rs, QueryStats stats) {
+        if (rs == null || stats == null) {
+            return rs;
+        }
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new ResultSetHandler(rs, stats));
+    }
+
+    // Counts the rows a query actually returns as the caller reads them
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final QueryStats stats;
+
+        ResultSetHandler(ResultSet target, QueryStats stats) {
+            this.target = target;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                Object result = method.invoke(target, args);
+                if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+                    stats.addRows(1);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
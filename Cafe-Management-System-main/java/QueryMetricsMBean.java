@@ -0,0 +1,12 @@
+// JMX view of all statements (cafe:type=QueryMetrics)
+public interface QueryMetricsMBean {
+    // One line per statement: calls, p50/p99/max latency, rows and errors
+    String[] getSummary();
+
+    // Share of prepareStatement calls served from the per-connection statement cache
+    double getStatementCacheHitRatio();
+
+    int getStatementCount();
+
+    void reset();
+}
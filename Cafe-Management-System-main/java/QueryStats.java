@@ -0,0 +1,221 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram, row count and error count for one named statement.
+// Buckets are log-scale in microseconds with four steps per power of two, so a
+// percentile is accurate to within about 20% and recording never allocates.
+public class QueryStats implements QueryStatsMBean {
+    private static final int BUCKETS = 160;
+
+    private final String name;
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder prepares = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator intervalMaxNanos = new LongAccumulator(Math::max, 0);
+
+    // State as of the previous log line (logger thread only)
+    private long[] lastLogged = new long[BUCKETS];
+    private long lastErrors;
+    private long lastRows;
+    private long lastPrepares;
+    private long lastCacheHits;
+
+    // Constructor
+    public QueryStats(String name) {
+        this.name = name;
+    }
+
+    // Record one execution
+    public void record(long nanos, boolean failed) {
+        histogram.incrementAndGet(bucket(nanos / 1000));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        intervalMaxNanos.accumulate(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    // One prepareStatement call, served from the statement cache or prepared afresh
+    public void recordPrepare(boolean cacheHit) {
+        prepares.increment();
+        if (cacheHit) {
+            cacheHits.increment();
+        }
+    }
+
+    // Rows returned or changed by an execution
+    public void addRows(long n) {
+        rows.add(n);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getPrepareCount() {
+        return prepares.sum();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long n = prepares.sum();
+        return n == 0 ? 0 : (double) cacheHits.sum() / n;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return Math.min(percentileMillis(snapshot(), 0.50), getMaxMillis());
+    }
+
+    @Override
+    public double getP99Millis() {
+        return Math.min(percentileMillis(snapshot(), 0.99), getMaxMillis());
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.set(i, 0);
+        }
+        count.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        prepares.reset();
+        cacheHits.reset();
+        maxNanos.reset();
+        intervalMaxNanos.reset();
+    }
+
+    // Lifetime figures as one line
+    public String summary() {
+        return format(name, getCount(), getP50Millis(), getP99Millis(), getMaxMillis(), getRowCount(), getErrorCount(),
+                getPrepareCount(), getCacheHitCount());
+    }
+
+    // Figures since the previous call as one line, or null when the statement did not run (logger thread only)
+    String drainInterval() {
+        long[] now = snapshot();
+        long[] delta = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            // A JMX reset can leave a bucket below what was last logged
+            delta[i] = Math.max(0, now[i] - lastLogged[i]);
+            n += delta[i];
+        }
+        lastLogged = now;
+        long errorTotal = errors.sum();
+        long rowTotal = rows.sum();
+        long intervalErrors = Math.max(0, errorTotal - lastErrors);
+        long intervalRows = Math.max(0, rowTotal - lastRows);
+        long prepareTotal = prepares.sum();
+        long hitTotal = cacheHits.sum();
+        long intervalPrepares = Math.max(0, prepareTotal - lastPrepares);
+        long intervalHits = Math.max(0, hitTotal - lastCacheHits);
+        lastErrors = errorTotal;
+        lastRows = rowTotal;
+        lastPrepares = prepareTotal;
+        lastCacheHits = hitTotal;
+        long max = intervalMaxNanos.getThenReset();
+        if (n == 0) {
+            return null;
+        }
+        double maxMillis = max / 1e6;
+        return format(name, n, Math.min(percentileMillis(delta, 0.50), maxMillis), Math.min(percentileMillis(delta, 0.99), maxMillis),
+                maxMillis, intervalRows, intervalErrors, intervalPrepares, intervalHits);
+    }
+
+    private long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    private static String format(String name, long n, double p50, double p99, double max, long rows, long errors,
+                                 long prepares, long hits) {
+        String line = String.format("%-40s n=%d p50=%.2fms p99=%.2fms max=%.2fms rows=%d errors=%d", name, n, p50, p99, max, rows, errors);
+        return prepares == 0 ? line : line + String.format(" cached=%d%%", hits * 100 / prepares);
+    }
+
+    // 0-3us get a bucket each, then four buckets per power of two
+    private static int bucket(long micros) {
+        if (micros < 4) {
+            return (int) Math.max(0, micros);
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exp - 2)) & 3;
+        return Math.min(BUCKETS - 1, (exp - 1) * 4 + sub);
+    }
+
+    // Exclusive upper edge of a bucket, in microseconds
+    private static long upperBoundMicros(int bucket) {
+        if (bucket < 4) {
+            return bucket + 1;
+        }
+        int exp = bucket / 4 + 1;
+        return (5L + bucket % 4) << (exp - 2);
+    }
+
+    // Upper edge of the bucket holding the q-th sample; callers cap it at the observed max
+    private static double percentileMillis(long[] counts, double q) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return upperBoundMicros(i) / 1000.0;
+            }
+        }
+        return upperBoundMicros(counts.length - 1) / 1000.0;
+    }
+}
@@ -0,0 +1,26 @@
+// JMX view of one named statement (cafe:type=QueryStats,name=...)
+public interface QueryStatsMBean {
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRowCount();
+
+    long getPrepareCount();
+
+    long getCacheHitCount();
+
+    double getCacheHitRatio();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
@@ -4,21 +4,37 @@ import java.awt.event.*;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.io.*;
-import com.opencsv.CSVWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public class ReportAnalysis {
-    private Connection conn;
+    private static final int ITEM_ANALYSIS_TOP = 15;
+    private static final int ITEM_ANALYSIS_EXPORT_PAIRS = 200;
+    private static final int ORDER_PAGE_SIZE = 200;
+
+    private DbExecutor db;
+    private SalesRollup salesRollup;
+    private SettingsService settings;
+    private ItemAnalytics itemAnalytics;
+    private OrderArchive archive;
     private JFrame frame;
-    private String cafeName = "Cafe Management System";
-    private double gstRate = 0.05;
-    private String currency = "Rs.";
 
-    // Constructor
-    public ReportAnalysis(Connection conn, JFrame frame) {
-        this.conn = conn;
+    // Constructor; archive is null when no order archive is configured
+    public ReportAnalysis(DbExecutor db, SalesRollup salesRollup, SettingsService settings, ItemAnalytics itemAnalytics,
+                          OrderArchive archive, JFrame frame) {
+        this.db = db;
+        this.salesRollup = salesRollup;
+        this.settings = settings;
+        this.itemAnalytics = itemAnalytics;
+        this.archive = archive;
         this.frame = frame;
-        loadSettings();
     }
 
     // Create report analysis panel
@@ -35,60 +51,134 @@ public class ReportAnalysis {
 
         // Sales report components
         JLabel reportTypeLabel = new JLabel("Report Type:");
-        JComboBox<String> reportTypeCombo = new JComboBox<>(new String[]{"Daily", "Weekly"});
+        JComboBox<String> reportTypeCombo = new JComboBox<>(new String[]{"Daily", "Weekly", "Custom Range"});
+        JLabel fromLabel = new JLabel("From (yyyy-MM-dd):");
+        JTextField fromField = new JTextField(LocalDate.now().minusDays(30).toString(), 10);
+        JLabel toLabel = new JLabel("To (yyyy-MM-dd):");
+        JTextField toField = new JTextField(LocalDate.now().toString(), 10);
         JButton viewReportButton = new JButton("View Report");
+        JButton showOrdersButton = new JButton("Show Orders");
         JButton exportCsvButton = new JButton("Export to CSV");
+        JButton rebuildSummaryButton = new JButton("Rebuild Summary");
+        JButton itemAnalysisButton = new JButton("Item Analysis");
+        JButton exportItemAnalysisButton = new JButton("Export Item Analysis");
+        JButton archiveButton = new JButton("Archive Closed Days");
+        JLabel archiveLabel = new JLabel();
         JTextArea reportArea = new JTextArea(20, 50);
         reportArea.setEditable(false);
+        BusyPanel busyPanel = new BusyPanel();
+        // Orders are listed in a table that loads pages as it scrolls, totalled by the database
+        JLabel ordersSummaryLabel = new JLabel(" ");
+        String[] ordersHeading = {""};
+        OrderHistoryModel ordersModel = new OrderHistoryModel(db, busyPanel, ORDER_PAGE_SIZE,
+                totals -> showOrderTotals(ordersSummaryLabel, ordersHeading[0], totals));
+        JTable ordersTable = new JTable(ordersModel);
+        JPanel ordersPanel = new JPanel(new BorderLayout(5, 5));
+        ordersPanel.add(ordersSummaryLabel, BorderLayout.NORTH);
+        ordersPanel.add(new JScrollPane(ordersTable), BorderLayout.CENTER);
+        CardLayout resultCards = new CardLayout();
+        JPanel resultPanel = new JPanel(resultCards);
+        resultPanel.add(new JScrollPane(reportArea), "report");
+        resultPanel.add(ordersPanel, "orders");
 
         // Cafe settings components
         JLabel cafeNameLabel = new JLabel("Cafe Name:");
-        JTextField cafeNameField = new JTextField(cafeName, 15);
+        JTextField cafeNameField = new JTextField(15);
         JLabel gstLabel = new JLabel("GST Rate (%):");
-        JTextField gstField = new JTextField(String.valueOf(gstRate * 100), 5);
+        JTextField gstField = new JTextField(5);
         JLabel currencyLabel = new JLabel("Currency:");
-        JTextField currencyField = new JTextField(currency, 5);
+        JTextField currencyField = new JTextField(5);
         JButton updateSettingsButton = new JButton("Update Settings");
 
+        // Fill the settings form, and again whenever the settings are saved
+        showSettings(cafeNameField, gstField, currencyField);
+        settings.addListener(() -> SwingUtilities.invokeLater(() -> showSettings(cafeNameField, gstField, currencyField)));
+
         // View report
         viewReportButton.addActionListener(e -> {
             String reportType = (String) reportTypeCombo.getSelectedItem();
-            generateSalesReport(reportType, reportArea);
+            LocalDate[] range = resolveRange(reportType, fromField.getText(), toField.getText());
+            if (range != null) {
+                resultCards.show(resultPanel, "report");
+                generateSalesReport(reportType, range[0], range[1], reportArea, busyPanel);
+            }
+        });
+
+        // Drill down to the individual orders behind the summary
+        showOrdersButton.addActionListener(e -> {
+            String reportType = (String) reportTypeCombo.getSelectedItem();
+            LocalDate[] range = resolveRange(reportType, fromField.getText(), toField.getText());
+            if (range != null) {
+                ordersHeading[0] = reportType + " orders from " + range[0] + " to " + range[1].minusDays(1);
+                ordersSummaryLabel.setText(ordersHeading[0] + ": totalling...");
+                ordersModel.setRange(range[0], range[1], settings.current().getCurrency());
+                resultCards.show(resultPanel, "orders");
+            }
+        });
+
+        // Recompute the summary for the selected range from the raw orders
+        rebuildSummaryButton.addActionListener(e -> {
+            String reportType = (String) reportTypeCombo.getSelectedItem();
+            LocalDate[] range = resolveRange(reportType, fromField.getText(), toField.getText());
+            if (range != null) {
+                db.submit(busyPanel, "Rebuilding summary...", conn -> {
+                    salesRollup.backfill(conn, range[0], range[1]);
+                    return range;
+                }, r -> JOptionPane.showMessageDialog(frame, "Summary rebuilt from " + r[0] + " to " + r[1].minusDays(1)),
+                        ex -> JOptionPane.showMessageDialog(frame, "Error rebuilding summary: " + ex.getMessage()));
+            }
         });
 
         // Export to CSV
         exportCsvButton.addActionListener(e -> {
             String reportType = (String) reportTypeCombo.getSelectedItem();
-            exportToCSV(reportType);
+            LocalDate[] range = resolveRange(reportType, fromField.getText(), toField.getText());
+            if (range != null) {
+                exportToCSV(reportType, range[0], range[1], busyPanel);
+            }
         });
 
+        // Best sellers, category revenue and items bought together
+        itemAnalysisButton.addActionListener(e -> {
+            String reportType = (String) reportTypeCombo.getSelectedItem();
+            LocalDate[] range = resolveRange(reportType, fromField.getText(), toField.getText());
+            if (range != null) {
+                resultCards.show(resultPanel, "report");
+                generateItemAnalysis(reportType, range[0], range[1], reportArea, busyPanel);
+            }
+        });
+
+        exportItemAnalysisButton.addActionListener(e -> {
+            String reportType = (String) reportTypeCombo.getSelectedItem();
+            LocalDate[] range = resolveRange(reportType, fromField.getText(), toField.getText());
+            if (range != null) {
+                exportItemAnalysis(range[0], range[1], busyPanel);
+            }
+        });
+
+        // Move closed days into the order archive so reports on them stop reading the live tables
+        if (archive != null) {
+            showArchive(archiveLabel);
+            archiveButton.addActionListener(e -> db.submit(busyPanel, "Archiving closed days...",
+                    conn -> archive.update(conn, LocalDate.now()),
+                    snapshot -> showArchive(archiveLabel),
+                    ex -> JOptionPane.showMessageDialog(frame, "Error archiving orders: " + ex.getMessage())));
+        }
+
         // Update settings
         updateSettingsButton.addActionListener(e -> {
+            String newCafeName = cafeNameField.getText();
+            String newCurrency = currencyField.getText();
+            double newGstRate;
             try {
-                cafeName = cafeNameField.getText();
-                gstRate = Double.parseDouble(gstField.getText()) / 100.0;
-                currency = currencyField.getText();
-
-                String query = "UPDATE settings SET cafe_name = ?, gst_rate = ?, currency = ? WHERE id = 1";
-                PreparedStatement ps = conn.prepareStatement(query);
-                ps.setString(1, cafeName);
-                ps.setDouble(2, gstRate);
-                ps.setString(3, currency);
-                int rows = ps.executeUpdate();
-                if (rows == 0) {
-                    String insertQuery = "INSERT INTO settings (id, cafe_name, gst_rate, currency) VALUES (1, ?, ?, ?)";
-                    PreparedStatement insertPs = conn.prepareStatement(insertQuery);
-                    insertPs.setString(1, cafeName);
-                    insertPs.setDouble(2, gstRate);
-                    insertPs.setString(3, currency);
-                    insertPs.executeUpdate();
-                }
-                JOptionPane.showMessageDialog(frame, "Settings updated successfully");
-            } catch (NumberFormatException ex) {
+                newGstRate = BillCalculator.forRate(Double.parseDouble(gstField.getText()) / 100.0).getGstRate();
+            } catch (IllegalArgumentException ex) {
                 JOptionPane.showMessageDialog(frame, "Invalid GST rate");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error updating settings: " + ex.getMessage());
+                return;
             }
+            db.submit(busyPanel, "Saving settings...", conn -> settings.update(conn, newCafeName, newGstRate, newCurrency),
+                    saved -> JOptionPane.showMessageDialog(frame, "Settings updated successfully"),
+                    ex -> JOptionPane.showMessageDialog(frame, "Error updating settings: " + ex.getMessage()));
         });
 
         // Add components to input panel with GridBagLayout
@@ -102,34 +192,74 @@ public class ReportAnalysis {
         gbc.weightx = 1.0;
         inputPanel.add(reportTypeCombo, gbc);
 
-        // Row 1: View Report button
+        // Row 1: From date
         gbc.gridx = 0;
         gbc.gridy = 1;
-        gbc.gridwidth = 2; // Span both columns
         gbc.weightx = 0.0;
-        inputPanel.add(viewReportButton, gbc);
-        gbc.gridwidth = 1; // Reset gridwidth
+        inputPanel.add(fromLabel, gbc);
 
-        // Row 2: Export to CSV button
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        inputPanel.add(fromField, gbc);
+
+        // Row 2: To date
         gbc.gridx = 0;
         gbc.gridy = 2;
-        gbc.gridwidth = 2;
-        inputPanel.add(exportCsvButton, gbc);
-        gbc.gridwidth = 1;
+        gbc.weightx = 0.0;
+        inputPanel.add(toLabel, gbc);
 
-        // Row 3: Cafe Name
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        inputPanel.add(toField, gbc);
+
+        // Row 3: View Report and Show Orders buttons
         gbc.gridx = 0;
         gbc.gridy = 3;
         gbc.weightx = 0.0;
+        inputPanel.add(viewReportButton, gbc);
+
+        gbc.gridx = 1;
+        inputPanel.add(showOrdersButton, gbc);
+
+        // Row 4: Export to CSV and Rebuild Summary buttons
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        inputPanel.add(exportCsvButton, gbc);
+
+        gbc.gridx = 1;
+        inputPanel.add(rebuildSummaryButton, gbc);
+
+        // Row 5: Item analysis
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        inputPanel.add(itemAnalysisButton, gbc);
+
+        gbc.gridx = 1;
+        inputPanel.add(exportItemAnalysisButton, gbc);
+
+        // Row 6: Order archive
+        if (archive != null) {
+            gbc.gridx = 0;
+            gbc.gridy = 6;
+            inputPanel.add(archiveButton, gbc);
+
+            gbc.gridx = 1;
+            inputPanel.add(archiveLabel, gbc);
+        }
+
+        // Row 7: Cafe Name
+        gbc.gridx = 0;
+        gbc.gridy = 7;
+        gbc.weightx = 0.0;
         inputPanel.add(cafeNameLabel, gbc);
 
         gbc.gridx = 1;
         gbc.weightx = 1.0;
         inputPanel.add(cafeNameField, gbc);
 
-        // Row 4: GST Rate
+        // Row 8: GST Rate
         gbc.gridx = 0;
-        gbc.gridy = 4;
+        gbc.gridy = 8;
         gbc.weightx = 0.0;
         inputPanel.add(gstLabel, gbc);
 
@@ -137,9 +267,9 @@ public class ReportAnalysis {
         gbc.weightx = 1.0;
         inputPanel.add(gstField, gbc);
 
-        // Row 5: Currency
+        // Row 9: Currency
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 9;
         gbc.weightx = 0.0;
         inputPanel.add(currencyLabel, gbc);
 
@@ -147,130 +277,270 @@ public class ReportAnalysis {
         gbc.weightx = 1.0;
         inputPanel.add(currencyField, gbc);
 
-        // Row 6: Update Settings button
+        // Row 10: Update Settings button
         gbc.gridx = 0;
-        gbc.gridy = 6;
+        gbc.gridy = 10;
         gbc.gridwidth = 2;
         gbc.weightx = 0.0;
         inputPanel.add(updateSettingsButton, gbc);
 
         // Add panels to main panel
         panel.add(inputPanel, BorderLayout.NORTH);
-        panel.add(new JScrollPane(reportArea), BorderLayout.CENTER);
+        panel.add(resultPanel, BorderLayout.CENTER);
+        panel.add(busyPanel, BorderLayout.SOUTH);
         return panel;
     }
 
-    // Load settings from database
-    private void loadSettings() {
+    // Show how far the order archive reaches
+    private void showArchive(JLabel archiveLabel) {
+        OrderArchive.Snapshot archived = archive.current();
+        archiveLabel.setText(archived == null ? "No orders archived yet"
+                : "Archived through " + archived.getEndDay().minusDays(1) + " (" + archived.getOrderCount() + " orders)");
+    }
+
+    // Show the current settings in the form
+    private void showSettings(JTextField cafeNameField, JTextField gstField, JTextField currencyField) {
+        SettingsService.Snapshot current = settings.current();
+        cafeNameField.setText(current.getCafeName());
+        gstField.setText(BigDecimal.valueOf(current.getCalculator().getGstBasisPoints(), 2).stripTrailingZeros().toPlainString());
+        currencyField.setText(current.getCurrency());
+    }
+
+    // Turn the report type into a [from, toExclusive) date range, or null after telling the user why not
+    private LocalDate[] resolveRange(String reportType, String fromText, String toText) {
+        LocalDate today = LocalDate.now();
+        if (reportType.equals("Daily")) {
+            return new LocalDate[]{today, today.plusDays(1)};
+        }
+        if (reportType.equals("Weekly")) {
+            return new LocalDate[]{today.minusDays(7), today.plusDays(1)};
+        }
         try {
-            String query = "SELECT cafe_name, gst_rate, currency FROM settings WHERE id = 1";
-            PreparedStatement ps = conn.prepareStatement(query);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                cafeName = rs.getString("cafe_name");
-                gstRate = rs.getDouble("gst_rate");
-                currency = rs.getString("currency");
+            LocalDate from = LocalDate.parse(fromText.trim());
+            LocalDate to = LocalDate.parse(toText.trim());
+            if (to.isBefore(from)) {
+                JOptionPane.showMessageDialog(frame, "The To date must not be before the From date");
+                return null;
             }
-        } catch (SQLException e) {
-            // Ignore if table doesn't exist yet
+            return new LocalDate[]{from, to.plusDays(1)};
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(frame, "Invalid date, use yyyy-MM-dd");
+            return null;
         }
     }
 
-    // Generate sales report
-    private void generateSalesReport(String reportType, JTextArea reportArea) {
-        try {
-            String dateCondition = reportType.equals("Daily") ?
-                    "DATE(order_date) = CURDATE()" :
-                    "order_date >= DATE_SUB(CURDATE(), INTERVAL 7 DAY)";
-            String query = "SELECT o.id, o.order_type, o.table_number, o.subtotal, o.gst, o.discount, o.total, o.order_date, " +
-                    "GROUP_CONCAT(oi.quantity, ' x ', m.name) as items " +
-                    "FROM orders o " +
-                    "JOIN order_items oi ON o.id = oi.order_id " +
-                    "JOIN menu_items m ON oi.item_id = m.id " +
-                    "WHERE " + dateCondition + " " +
-                    "GROUP BY o.id";
-            PreparedStatement ps = conn.prepareStatement(query);
-            ResultSet rs = ps.executeQuery();
-
-            StringBuilder report = new StringBuilder();
-            report.append("=== ").append(reportType).append(" Sales Report ===\n");
-            report.append("Cafe: ").append(cafeName).append("\n");
-            report.append("Generated on: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())).append("\n\n");
-
-            double totalSales = 0.0;
-            int orderCount = 0;
-
-            while (rs.next()) {
-                orderCount++;
-                double total = rs.getDouble("total");
-                totalSales += total;
-                report.append("Order ID: ").append(rs.getInt("id")).append("\n");
-                report.append("Type: ").append(rs.getString("order_type")).append("\n");
-                report.append("Table: ").append(rs.getString("table_number")).append("\n");
-                report.append("Items: ").append(rs.getString("items")).append("\n");
-                report.append("Subtotal: ").append(currency).append(String.format("%.2f", rs.getDouble("subtotal"))).append("\n");
-                report.append("GST: ").append(currency).append(String.format("%.2f", rs.getDouble("gst"))).append("\n");
-                report.append("Discount: ").append(currency).append(String.format("%.2f", rs.getDouble("discount"))).append("\n");
-                report.append("Total: ").append(currency).append(String.format("%.2f", total)).append("\n");
-                report.append("Date: ").append(rs.getTimestamp("order_date")).append("\n\n");
+    // Generate sales report from the daily rollup
+    private void generateSalesReport(String reportType, LocalDate from, LocalDate toExclusive, JTextArea reportArea, BusyPanel busyPanel) {
+        SettingsService.Snapshot current = settings.current();
+        String cafeName = current.getCafeName();
+        String currency = current.getCurrency();
+        // Archived days come from the mapped archive and only the rest from the rollup tables
+        OrderArchive.Snapshot archived = archive != null ? archive.current() : null;
+        LocalDate liveFrom = archived == null || from.isAfter(archived.getEndDay()) ? from : archived.getEndDay();
+        DbExecutor.SqlWork<String> work = conn -> {
+            List<SalesRollup.DaySummary> days = new ArrayList<>();
+            List<SalesRollup.ItemTotal> items = new ArrayList<>();
+            if (archived != null) {
+                days.addAll(archived.readDays(from, toExclusive));
+                items.addAll(archived.readItems(from, toExclusive));
             }
+            if (liveFrom.isBefore(toExclusive)) {
+                days.addAll(salesRollup.readDays(conn, liveFrom, toExclusive));
+                items = mergeItems(items, salesRollup.readItems(conn, liveFrom, toExclusive));
+            }
+            return formatSalesReport(reportType, cafeName, currency, from, toExclusive, days, items, new Date());
+        };
+        if (liveFrom.isBefore(toExclusive)) {
+            db.submit(busyPanel, "Generating report...", work, reportArea::setText,
+                    ex -> JOptionPane.showMessageDialog(frame, "Error generating report: " + ex.getMessage()));
+        } else {
+            db.submitLocal(busyPanel, "Generating report...", () -> work.run(null), reportArea::setText,
+                    ex -> JOptionPane.showMessageDialog(frame, "Error generating report: " + ex.getMessage()));
+        }
+    }
 
-            report.append("Summary:\n");
-            report.append("Total Orders: ").append(orderCount).append("\n");
-            report.append("Total Sales: ").append(currency).append(String.format("%.2f", totalSales)).append("\n");
+    // Quantities from the archive and the rollup added up per item, best sellers first
+    private static List<SalesRollup.ItemTotal> mergeItems(List<SalesRollup.ItemTotal> archived, List<SalesRollup.ItemTotal> live) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Map<Integer, SalesRollup.ItemTotal> byId = new LinkedHashMap<>();
+        for (SalesRollup.ItemTotal item : archived) {
+            byId.put(item.getItemId(), item);
+        }
+        for (SalesRollup.ItemTotal item : live) {
+            SalesRollup.ItemTotal earlier = byId.get(item.getItemId());
+            byId.put(item.getItemId(), earlier == null ? item : new SalesRollup.ItemTotal(item.getItemId(),
+                    item.getName() != null ? item.getName() : earlier.getName(), earlier.getQuantity() + item.getQuantity()));
+        }
+        List<SalesRollup.ItemTotal> merged = new ArrayList<>(byId.values());
+        merged.sort((a, b) -> Integer.compare(b.getQuantity(), a.getQuantity()));
+        return merged;
+    }
 
-            reportArea.setText(report.toString());
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error generating report: " + e.getMessage());
+    // Render rollup rows as the printed sales report
+    static String formatSalesReport(String reportType, String cafeName, String currency, LocalDate from, LocalDate toExclusive,
+                                    List<SalesRollup.DaySummary> days, List<SalesRollup.ItemTotal> items, Date generatedOn) {
+        StringBuilder report = new StringBuilder();
+        report.append("=== ").append(reportType).append(" Sales Report ===\n");
+        report.append("Cafe: ").append(cafeName).append("\n");
+        report.append("Period: ").append(from).append(" to ").append(toExclusive.minusDays(1)).append("\n");
+        report.append("Generated on: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(generatedOn)).append("\n\n");
+
+        int orderCount = 0;
+        long subtotal = 0;
+        long gst = 0;
+        long discount = 0;
+        long totalSales = 0;
+        for (SalesRollup.DaySummary day : days) {
+            orderCount += day.getOrderCount();
+            subtotal += day.getSubtotalMinor();
+            gst += day.getGstMinor();
+            discount += day.getDiscountMinor();
+            totalSales += day.getTotalMinor();
+            report.append(day.getDay()).append(": ").append(day.getOrderCount()).append(" orders, ").append("Sales ").append(currency);
+            Money.append(report, day.getTotalMinor()).append(" (GST ").append(currency);
+            Money.append(report, day.getGstMinor()).append(", Discount ").append(currency);
+            Money.append(report, day.getDiscountMinor()).append(")\n");
         }
+
+        report.append("\nItems Sold:\n");
+        for (SalesRollup.ItemTotal item : items) {
+            report.append(item.getQuantity()).append(" x ")
+                    .append(item.getName() != null ? item.getName() : "Item " + item.getItemId()).append("\n");
+        }
+
+        report.append("\nSummary:\n");
+        report.append("Total Orders: ").append(orderCount).append("\n");
+        Money.append(report.append("Subtotal: ").append(currency), subtotal).append("\n");
+        Money.append(report.append("GST: ").append(currency), gst).append("\n");
+        Money.append(report.append("Discount: ").append(currency), discount).append("\n");
+        Money.append(report.append("Total Sales: ").append(currency), totalSales).append("\n");
+        return report.toString();
+    }
+
+    // Summary line above the orders table
+    private void showOrderTotals(JLabel label, String heading, OrderRepository.RangeTotals totals) {
+        if (totals == null) {
+            label.setText(heading + ": totals unavailable");
+            return;
+        }
+        String currency = settings.current().getCurrency();
+        StringBuilder text = new StringBuilder(heading).append(": ").append(totals.getOrderCount()).append(" orders, Subtotal ").append(currency);
+        Money.append(text, totals.getSubtotalMinor()).append(", GST ").append(currency);
+        Money.append(text, totals.getGstMinor()).append(", Discount ").append(currency);
+        Money.append(text, totals.getDiscountMinor()).append(", Total Sales ").append(currency);
+        Money.append(text, totals.getTotalMinor());
+        label.setText(text.toString());
+    }
+
+    // Run the item analysis for a range and show it in the report area
+    private void generateItemAnalysis(String reportType, LocalDate from, LocalDate toExclusive, JTextArea reportArea, BusyPanel busyPanel) {
+        SettingsService.Snapshot current = settings.current();
+        String cafeName = current.getCafeName();
+        String currency = current.getCurrency();
+        OrderArchive.Snapshot archived = archive != null ? archive.current() : null;
+        DbExecutor.SqlWork<String> work = conn -> {
+            ItemAnalytics.Result result = archived != null
+                    ? itemAnalytics.analyze(conn, from, toExclusive, archived, ITEM_ANALYSIS_TOP)
+                    : itemAnalytics.analyze(conn, from, toExclusive, ITEM_ANALYSIS_TOP);
+            return formatItemAnalysis(reportType, cafeName, currency, from, toExclusive, result, ITEM_ANALYSIS_TOP);
+        };
+        if (archived == null || archived.getEndDay().isBefore(toExclusive)) {
+            db.submit(busyPanel, "Analysing items...", work, reportArea::setText,
+                    ex -> JOptionPane.showMessageDialog(frame, "Error analysing items: " + ex.getMessage()));
+        } else {
+            db.submitLocal(busyPanel, "Analysing items...", () -> work.run(null), reportArea::setText,
+                    ex -> JOptionPane.showMessageDialog(frame, "Error analysing items: " + ex.getMessage()));
+        }
+    }
+
+    // Render an item analysis as text; lists are cut to the first top entries
+    static String formatItemAnalysis(String reportType, String cafeName, String currency, LocalDate from, LocalDate toExclusive,
+                                     ItemAnalytics.Result result, int top) {
+        StringBuilder report = new StringBuilder();
+        report.append("=== ").append(reportType).append(" Item Analysis ===\n");
+        report.append("Cafe: ").append(cafeName).append("\n");
+        report.append("Period: ").append(from).append(" to ").append(toExclusive.minusDays(1)).append("\n");
+        report.append("Orders: ").append(result.getOrderCount()).append(", lines: ").append(result.getLineCount())
+                .append(" (analysed in ").append(result.getElapsedMillis()).append(" ms)\n\n");
+
+        report.append("Best Sellers:\n");
+        List<ItemAnalytics.ItemStat> items = result.getItems();
+        for (int i = 0; i < Math.min(top, items.size()); i++) {
+            ItemAnalytics.ItemStat item = items.get(i);
+            report.append(i + 1).append(". ").append(item.getName()).append(": ").append(item.getUnits()).append(" sold in ")
+                    .append(item.getOrders()).append(" orders, ").append(currency);
+            Money.append(report, item.getRevenueMinor()).append("\n");
+        }
+
+        report.append("\nSales by Category:\n");
+        for (ItemAnalytics.CategoryStat category : result.getCategories()) {
+            report.append(category.getCategory()).append(": ").append(category.getUnits()).append(" sold, ").append(currency);
+            Money.append(report, category.getRevenueMinor()).append("\n");
+        }
+
+        report.append("\nFrequently Bought Together:\n");
+        if (result.getPairs().isEmpty()) {
+            report.append("No item is bought with another in more than one order\n");
+        }
+        for (ItemAnalytics.PairStat pair : result.getPairs().subList(0, Math.min(top, result.getPairs().size()))) {
+            report.append(pair.getFirst().getName()).append(" + ").append(pair.getSecond().getName()).append(": ")
+                    .append(pair.getOrders()).append(" orders, lift ").append(String.format("%.2f", pair.getLift())).append("\n");
+        }
+        return report.toString();
     }
 
-    // Export report to CSV
-    private void exportToCSV(String reportType) {
+    // Export the item analysis for a range to CSV
+    private void exportItemAnalysis(LocalDate from, LocalDate toExclusive, BusyPanel busyPanel) {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setSelectedFile(new File(reportType.toLowerCase() + "_report_" + new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".csv"));
+        fileChooser.setSelectedFile(new File("items_" + from.format(DateTimeFormatter.BASIC_ISO_DATE) + "_"
+                + toExclusive.minusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE) + ".csv"));
         if (fileChooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
-            try (CSVWriter csvWriter = new CSVWriter(new FileWriter(fileChooser.getSelectedFile()))) {
-                // Write header
-                csvWriter.writeNext(new String[]{"ID", "Type", "Table", "Items", "Subtotal", "GST", "Discount", "Total", "Date"});
-
-                // Fetch data
-                String dateCondition = reportType.equals("Daily") ?
-                        "DATE(order_date) = CURDATE()" :
-                        "order_date >= DATE_SUB(CURDATE(), INTERVAL 7 DAY)";
-                String query = "SELECT o.id, o.order_type, o.table_number, o.subtotal, o.gst, o.discount, o.total, o.order_date, " +
-                        "GROUP_CONCAT(oi.quantity, ' x ', m.name) as items " +
-                        "FROM orders o " +
-                        "JOIN order_items oi ON o.id = oi.order_id " +
-                        "JOIN menu_items m ON oi.item_id = m.id " +
-                        "WHERE " + dateCondition + " " +
-                        "GROUP BY o.id";
-                PreparedStatement ps = conn.prepareStatement(query);
-                ResultSet rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    csvWriter.writeNext(new String[]{
-                            String.valueOf(rs.getInt("id")),
-                            rs.getString("order_type"),
-                            rs.getString("table_number"),
-                            rs.getString("items"),
-                            currency + String.format("%.2f", rs.getDouble("subtotal")),
-                            currency + String.format("%.2f", rs.getDouble("gst")),
-                            currency + String.format("%.2f", rs.getDouble("discount")),
-                            currency + String.format("%.2f", rs.getDouble("total")),
-                            rs.getTimestamp("order_date").toString()
-                    });
+            File file = fileChooser.getSelectedFile();
+            String currency = settings.current().getCurrency();
+            db.submit(busyPanel, "Exporting item analysis...", conn -> {
+                OrderArchive.Snapshot archived = archive != null ? archive.current() : null;
+                ItemAnalytics.Result result = archived != null
+                        ? itemAnalytics.analyze(conn, from, toExclusive, archived, ITEM_ANALYSIS_EXPORT_PAIRS)
+                        : itemAnalytics.analyze(conn, from, toExclusive, ITEM_ANALYSIS_EXPORT_PAIRS);
+                try (Writer out = new BufferedWriter(new FileWriter(file), 64 * 1024)) {
+                    new ReportExporter().exportItemAnalysis(result, currency, out);
+                    return result;
+                } catch (IOException ex) {
+                    file.delete();
+                    throw ex;
                 }
+            }, result -> JOptionPane.showMessageDialog(frame, "Item analysis exported (" + result.getItems().size() + " items)"),
+                    ex -> JOptionPane.showMessageDialog(frame, "Error exporting item analysis: " + ex.getMessage()));
+        }
+    }
 
-                JOptionPane.showMessageDialog(frame, "CSV exported successfully");
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(frame, "Error exporting CSV: " + e.getMessage());
-            }
+    // Export report to CSV, streaming rows to the file on a worker thread
+    private void exportToCSV(String reportType, LocalDate from, LocalDate toExclusive, BusyPanel busyPanel) {
+        JFileChooser fileChooser = new JFileChooser();
+        String name = reportType.equals("Custom Range")
+                ? "report_" + from.format(DateTimeFormatter.BASIC_ISO_DATE) + "_" + toExclusive.minusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE)
+                : reportType.toLowerCase() + "_report_" + new SimpleDateFormat("yyyyMMdd").format(new Date());
+        fileChooser.setSelectedFile(new File(name + ".csv"));
+        if (fileChooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            String currency = settings.current().getCurrency();
+            db.submit(busyPanel, "Exporting CSV...", conn -> {
+                try (Writer out = new BufferedWriter(new FileWriter(file), 64 * 1024)) {
+                    return new ReportExporter().export(conn, from, toExclusive, currency, out);
+                } catch (SQLException | IOException ex) {
+                    // Do not leave a truncated export behind
+                    file.delete();
+                    throw ex;
+                }
+            }, rows -> JOptionPane.showMessageDialog(frame, "CSV exported successfully (" + rows + " orders)"),
+                    ex -> JOptionPane.showMessageDialog(frame, "Error exporting CSV: " + ex.getMessage()));
         }
     }
 
     // Getter for GST rate
     public double getGstRate() {
-        return gstRate;
+        return settings.current().getGstRate();
     }
 }
\ No newline at end of file
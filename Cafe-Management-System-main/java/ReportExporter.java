@@ -0,0 +1,74 @@
+import com.opencsv.CSVWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.*;
+import java.time.LocalDate;
+
+public class ReportExporter {
+    private static final String[] HEADER = {"ID", "Type", "Table", "Items", "Subtotal", "GST", "Discount", "Total", "Date"};
+    private final OrderRepository orderRepository = new OrderRepository();
+
+    // Write orders dated from (inclusive) to toExclusive as CSV, streaming rows from the database.
+    // Returns the number of orders written.
+    public int export(Connection conn, LocalDate from, LocalDate toExclusive, String currency, Writer out) throws SQLException, IOException {
+        CSVWriter csvWriter = new CSVWriter(out);
+        csvWriter.writeNext(HEADER);
+        String[] row = new String[HEADER.length];
+        StringBuilder amount = new StringBuilder(currency.length() + 16);
+        int[] written = {0};
+        int count = orderRepository.forEachOrder(conn, from, toExclusive, order -> {
+            if ((written[0]++ & 255) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new SQLException("Export cancelled");
+            }
+            row[0] = Integer.toString(order.getId());
+            row[1] = order.getOrderType();
+            row[2] = order.getTableNumber();
+            row[3] = order.getItems();
+            row[4] = money(amount, currency, order.getSubtotalMinor());
+            row[5] = money(amount, currency, order.getGstMinor());
+            row[6] = money(amount, currency, order.getDiscountMinor());
+            row[7] = money(amount, currency, order.getTotalMinor());
+            row[8] = order.getOrderDate().toString();
+            csvWriter.writeNext(row);
+        });
+        csvWriter.flush();
+        if (csvWriter.checkError()) {
+            throw new IOException("Error writing CSV");
+        }
+        return count;
+    }
+
+    // Write an item analysis as CSV: one section per list, each with its own header row
+    public void exportItemAnalysis(ItemAnalytics.Result result, String currency, Writer out) throws IOException {
+        CSVWriter csvWriter = new CSVWriter(out);
+        StringBuilder amount = new StringBuilder(currency.length() + 16);
+        csvWriter.writeNext(new String[]{"Item ID", "Item", "Category", "Units", "Orders", "Sales"});
+        for (ItemAnalytics.ItemStat item : result.getItems()) {
+            csvWriter.writeNext(new String[]{Integer.toString(item.getItemId()), item.getName(), item.getCategory(),
+                    Long.toString(item.getUnits()), Integer.toString(item.getOrders()), money(amount, currency, item.getRevenueMinor())});
+        }
+        csvWriter.writeNext(new String[0]);
+        csvWriter.writeNext(new String[]{"Category", "Units", "Sales"});
+        for (ItemAnalytics.CategoryStat category : result.getCategories()) {
+            csvWriter.writeNext(new String[]{category.getCategory(), Long.toString(category.getUnits()),
+                    money(amount, currency, category.getRevenueMinor())});
+        }
+        csvWriter.writeNext(new String[0]);
+        csvWriter.writeNext(new String[]{"Item", "Bought With", "Orders", "Lift"});
+        for (ItemAnalytics.PairStat pair : result.getPairs()) {
+            csvWriter.writeNext(new String[]{pair.getFirst().getName(), pair.getSecond().getName(),
+                    Integer.toString(pair.getOrders()), String.format("%.2f", pair.getLift())});
+        }
+        csvWriter.flush();
+        if (csvWriter.checkError()) {
+            throw new IOException("Error writing CSV");
+        }
+    }
+
+    // Currency and amount printed into one reused buffer
+    private static String money(StringBuilder buffer, String currency, long minor) {
+        buffer.setLength(0);
+        return Money.append(buffer.append(currency), minor).toString();
+    }
+}
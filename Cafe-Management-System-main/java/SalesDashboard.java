@@ -0,0 +1,101 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+public class SalesDashboard {
+    private static final int TOP_SELLERS = 10;
+
+    private OrderEventStream.Subscription subscription;
+    private StockLedger stockLedger;
+    private SettingsService settings;
+    private final LiveSales sales = new LiveSales();
+    private final Date startedAt = new Date();
+
+    // Constructor; subscribes straight away so orders rung up before the tab is opened are counted
+    public SalesDashboard(OrderEventStream events, StockLedger stockLedger, SettingsService settings) {
+        this.subscription = events.subscribe();
+        this.stockLedger = stockLedger;
+        this.settings = settings;
+    }
+
+    // Create live sales panel, refreshed every second from the event stream without touching the database
+    public JPanel createSalesDashboardPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        JLabel revenueLabel = new JLabel();
+        JLabel ordersLabel = new JLabel();
+        JLabel averageLabel = new JLabel();
+        JLabel inFlightLabel = new JLabel();
+        JLabel sinceLabel = new JLabel();
+        DefaultTableModel hourModel = readOnlyModel("Hour", "Orders", "Sales");
+        DefaultTableModel topModel = readOnlyModel("Item", "Units", "Sales");
+        for (int hour = 0; hour < 24; hour++) {
+            hourModel.addRow(new Object[]{String.format("%02d:00", hour), 0, ""});
+        }
+
+        JPanel summaryPanel = new JPanel(new GridLayout(5, 1, 5, 5));
+        summaryPanel.add(revenueLabel);
+        summaryPanel.add(ordersLabel);
+        summaryPanel.add(averageLabel);
+        summaryPanel.add(inFlightLabel);
+        summaryPanel.add(sinceLabel);
+
+        JPanel tablePanel = new JPanel(new GridLayout(1, 2, 10, 10));
+        tablePanel.add(new JScrollPane(new JTable(hourModel)));
+        tablePanel.add(new JScrollPane(new JTable(topModel)));
+
+        Runnable refresh = () -> {
+            subscription.drain(sales::add);
+            sales.rollTo(LocalDate.now());
+            String currency = settings.current().getCurrency();
+            revenueLabel.setText(Money.append(new StringBuilder("Today's sales: ").append(currency), sales.getRevenueMinor()).toString());
+            ordersLabel.setText("Orders today: " + sales.getOrderCount());
+            averageLabel.setText(Money.append(new StringBuilder("Average ticket: ").append(currency), sales.getAverageTicketMinor()).toString());
+            inFlightLabel.setText("Orders in progress: " + stockLedger.getOpenHoldCount());
+            long missed = subscription.getDroppedCount();
+            sinceLabel.setText("Counting since " + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(startedAt)
+                    + (missed > 0 ? " (" + missed + " orders missed)" : ""));
+
+            for (int hour = 0; hour < 24; hour++) {
+                long revenue = sales.getRevenueMinor(hour);
+                setIfChanged(hourModel, hour, 1, sales.getOrderCount(hour));
+                setIfChanged(hourModel, hour, 2, revenue == 0 ? "" : Money.append(new StringBuilder(currency), revenue).toString());
+            }
+            List<LiveSales.ItemSales> top = sales.topSellers(TOP_SELLERS);
+            topModel.setRowCount(top.size());
+            for (int row = 0; row < top.size(); row++) {
+                LiveSales.ItemSales item = top.get(row);
+                setIfChanged(topModel, row, 0, item.getName());
+                setIfChanged(topModel, row, 1, item.getQuantity());
+                setIfChanged(topModel, row, 2, Money.append(new StringBuilder(currency), item.getRevenueMinor()).toString());
+            }
+        };
+        refresh.run();
+        new Timer(1000, e -> refresh.run()).start();
+
+        panel.add(summaryPanel, BorderLayout.NORTH);
+        panel.add(tablePanel, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    // Only fire a table event when the cell actually changes, so an idle dashboard does not repaint
+    private static void setIfChanged(DefaultTableModel model, int row, int column, Object value) {
+        if (!Objects.equals(model.getValueAt(row, column), value)) {
+            model.setValueAt(value, row, column);
+        }
+    }
+}
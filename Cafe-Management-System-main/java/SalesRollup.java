@@ -0,0 +1,201 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SalesRollup {
+    private static final String RECORD_DAY = "INSERT INTO daily_sales_summary (sales_date, order_count, subtotal, gst, discount, total) VALUES (?, 1, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + 1, subtotal = subtotal + VALUES(subtotal), " +
+            "gst = gst + VALUES(gst), discount = discount + VALUES(discount), total = total + VALUES(total)";
+    private static final String RECORD_ITEM = "INSERT INTO daily_item_sales (sales_date, item_id, quantity) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+    private static final String READ_DAYS = "SELECT sales_date, order_count, subtotal, gst, discount, total FROM daily_sales_summary " +
+            "WHERE sales_date >= ? AND sales_date < ? ORDER BY sales_date";
+    private static final String READ_ITEMS = "SELECT s.item_id, m.name, SUM(s.quantity) AS qty FROM daily_item_sales s " +
+            "LEFT JOIN menu_items m ON s.item_id = m.id " +
+            "WHERE s.sales_date >= ? AND s.sales_date < ? GROUP BY s.item_id, m.name ORDER BY qty DESC";
+
+    // One day of the daily_sales_summary table
+    public static final class DaySummary {
+        private final LocalDate day;
+        private final int orderCount;
+        private final long subtotalMinor;
+        private final long gstMinor;
+        private final long discountMinor;
+        private final long totalMinor;
+
+        DaySummary(LocalDate day, int orderCount, long subtotalMinor, long gstMinor, long discountMinor, long totalMinor) {
+            this.day = day;
+            this.orderCount = orderCount;
+            this.subtotalMinor = subtotalMinor;
+            this.gstMinor = gstMinor;
+            this.discountMinor = discountMinor;
+            this.totalMinor = totalMinor;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        public long getSubtotalMinor() {
+            return subtotalMinor;
+        }
+
+        public long getGstMinor() {
+            return gstMinor;
+        }
+
+        public long getDiscountMinor() {
+            return discountMinor;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+    }
+
+    // Quantity of one item sold over a range
+    public static final class ItemTotal {
+        private final int itemId;
+        private final String name;
+        private final int quantity;
+
+        ItemTotal(int itemId, String name, int quantity) {
+            this.itemId = itemId;
+            this.name = name;
+            this.quantity = quantity;
+        }
+
+        public int getItemId() {
+            return itemId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
+    // Create the rollup tables if missing
+    public void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS daily_sales_summary (sales_date DATE PRIMARY KEY, order_count INT NOT NULL, subtotal DECIMAL(14,2) NOT NULL, gst DECIMAL(14,2) NOT NULL, discount DECIMAL(14,2) NOT NULL, total DECIMAL(14,2) NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS daily_item_sales (sales_date DATE, item_id INT, quantity INT NOT NULL, PRIMARY KEY (sales_date, item_id))");
+        }
+    }
+
+    // Add a committed order to its day; call inside the bill's transaction
+    public void recordOrder(Connection conn, LocalDate day, Order order, long gstMinor, long totalMinor) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(RECORD_DAY)) {
+            ps.setDate(1, Date.valueOf(day));
+            ps.setBigDecimal(2, Money.toDecimal(order.getSubtotalMinor()));
+            ps.setBigDecimal(3, Money.toDecimal(gstMinor));
+            ps.setBigDecimal(4, Money.toDecimal(order.getDiscountMinor()));
+            ps.setBigDecimal(5, Money.toDecimal(totalMinor));
+            ps.executeUpdate();
+        }
+
+        try (PreparedStatement itemPs = conn.prepareStatement(RECORD_ITEM)) {
+            for (int i = 0; i < order.getItemCount(); i++) {
+                itemPs.setDate(1, Date.valueOf(day));
+                itemPs.setInt(2, order.getItemId(i));
+                itemPs.setInt(3, order.getItemQuantity(i));
+                itemPs.addBatch();
+            }
+            itemPs.executeBatch();
+        }
+    }
+
+    // Rebuild the rollup for [from, toExclusive) from the raw orders in one transaction
+    public void backfill(Connection conn, LocalDate from, LocalDate toExclusive) throws SQLException {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(toExclusive.atStartOfDay());
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement deleteSummary = conn.prepareStatement("DELETE FROM daily_sales_summary WHERE sales_date >= ? AND sales_date < ?")) {
+                deleteSummary.setDate(1, Date.valueOf(from));
+                deleteSummary.setDate(2, Date.valueOf(toExclusive));
+                deleteSummary.executeUpdate();
+            }
+            try (PreparedStatement deleteItems = conn.prepareStatement("DELETE FROM daily_item_sales WHERE sales_date >= ? AND sales_date < ?")) {
+                deleteItems.setDate(1, Date.valueOf(from));
+                deleteItems.setDate(2, Date.valueOf(toExclusive));
+                deleteItems.executeUpdate();
+            }
+
+            try (PreparedStatement summary = conn.prepareStatement("INSERT INTO daily_sales_summary (sales_date, order_count, subtotal, gst, discount, total) " +
+                    "SELECT DATE(order_date), COUNT(*), SUM(subtotal), SUM(gst), SUM(discount), SUM(total) FROM orders " +
+                    "WHERE order_date >= ? AND order_date < ? GROUP BY DATE(order_date)")) {
+                summary.setTimestamp(1, start);
+                summary.setTimestamp(2, end);
+                summary.executeUpdate();
+            }
+            try (PreparedStatement items = conn.prepareStatement("INSERT INTO daily_item_sales (sales_date, item_id, quantity) " +
+                    "SELECT DATE(o.order_date), oi.item_id, SUM(oi.quantity) FROM orders o JOIN order_items oi ON o.id = oi.order_id " +
+                    "WHERE o.order_date >= ? AND o.order_date < ? GROUP BY DATE(o.order_date), oi.item_id")) {
+                items.setTimestamp(1, start);
+                items.setTimestamp(2, end);
+                items.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Rebuild the rollup over all order history; run once as a schema migration, before any new order can be recorded
+    public void backfillAll(Connection conn) throws SQLException {
+        LocalDate first;
+        LocalDate last;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(order_date), MAX(order_date) FROM orders")) {
+            if (!rs.next() || rs.getTimestamp(1) == null) {
+                return;
+            }
+            first = rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+            last = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+        }
+        backfill(conn, first, last.plusDays(1));
+    }
+
+    // Per-day totals for [from, toExclusive), oldest first
+    public List<DaySummary> readDays(Connection conn, LocalDate from, LocalDate toExclusive) throws SQLException {
+        List<DaySummary> days = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(READ_DAYS)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(toExclusive));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    days.add(new DaySummary(rs.getDate(1).toLocalDate(), rs.getInt(2), Money.ofDecimal(rs.getBigDecimal(3)),
+                            Money.ofDecimal(rs.getBigDecimal(4)), Money.ofDecimal(rs.getBigDecimal(5)), Money.ofDecimal(rs.getBigDecimal(6))));
+                }
+            }
+        }
+        return days;
+    }
+
+    // Quantities sold per item over [from, toExclusive), best sellers first
+    public List<ItemTotal> readItems(Connection conn, LocalDate from, LocalDate toExclusive) throws SQLException {
+        List<ItemTotal> items = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(READ_ITEMS)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(toExclusive));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new ItemTotal(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+                }
+            }
+        }
+        return items;
+    }
+}
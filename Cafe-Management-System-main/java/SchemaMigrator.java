@@ -0,0 +1,121 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class SchemaMigrator {
+    private final List<Migration> migrations = new ArrayList<>();
+
+    // One schema change, applied at most once
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // Register a migration; versions must be added in increasing order
+    public SchemaMigrator add(int version, String description, Step step) {
+        if (!migrations.isEmpty() && migrations.get(migrations.size() - 1).version >= version) {
+            throw new IllegalArgumentException("Migration " + version + " is out of order");
+        }
+        migrations.add(new Migration(version, description, step));
+        return this;
+    }
+
+    // Highest registered version
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    // Apply pending migrations; returns how many ran (0 when the schema is already current).
+    // DDL is not transactional on MySQL, so every step must be safe to re-run after failing part-way.
+    public int migrate(Connection conn) throws SQLException {
+        // Checked first so a normal start runs no DDL at all
+        if (!tableExists(conn, "schema_version")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, description VARCHAR(200), applied_at DATETIME)");
+            }
+        }
+        int current = currentVersion(conn);
+        if (current >= latestVersion()) {
+            return 0;
+        }
+        int applied = 0;
+        for (Migration migration : migrations) {
+            if (migration.version <= current) {
+                continue;
+            }
+            // MySQL commits DDL implicitly, so each step is recorded as soon as it succeeds
+            migration.step.apply(conn);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                ps.executeUpdate();
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    // Version recorded in schema_version, 0 for a new or pre-migration database
+    public int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Add a column unless an interrupted earlier run already did
+    public static void addColumn(Connection conn, String table, String column, String definition) throws SQLException {
+        if (columnExists(conn, table, column)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    public static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, identifier(meta, table), new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    public static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, identifier(meta, table), identifier(meta, column))) {
+            return rs.next();
+        }
+    }
+
+    // Unquoted names as the database stores them, for metadata lookups
+    private static String identifier(DatabaseMetaData meta, String name) throws SQLException {
+        if (meta.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        return meta.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    // Create an index, tolerating one left behind by an interrupted earlier run
+    public static void createIndex(Connection conn, String table, String name, String columns) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+        } catch (SQLException e) {
+            if (!StorageBackend.forConnection(conn).isDuplicateIndex(e)) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.security.SecureRandom;
+import java.sql.*;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Logged-in users for every till and terminal in the process. A login checks the password hash once
+// and opens a session keyed by a random token; later actions resolve the token to its principal from
+// memory, so attributing an order or stock change to a cashier costs no query. Accounts that logged in
+// recently are cached for accountTtlMillis, which saves the users lookup when cashiers swap on a shared
+// till. Until an account expires its cached hash decides every login, so a password or role changed
+// outside the app takes effect only once accountTtlMillis has passed.
+public class SessionManager {
+    private static final int TOKEN_BYTES = 24;
+
+    // Checked when the user does not exist, so an unknown name takes as long as a wrong password
+    private static final String UNKNOWN_USER_HASH = PasswordHasher.hash("unknown user");
+
+    private final UserRepository userRepository = new UserRepository();
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CachedAccount> accounts = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTimeoutMillis;
+    private final long accountTtlMillis;
+
+    // The authenticated user behind a session
+    public static final class Principal {
+        private final int id;
+        private final String username;
+        private final String role;
+
+        Principal(int id, String username, String role) {
+            this.id = id;
+            this.username = username;
+            this.role = role;
+        }
+
+        // users.id, as stamped on orders and inventory_transactions
+        public int getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public boolean isAdmin() {
+            return "Admin".equals(role);
+        }
+    }
+
+    // One login; expires after idleTimeoutMillis without use
+    public static final class Session {
+        private final String token;
+        private final Principal principal;
+        private volatile long expiresAtMillis;
+
+        private Session(String token, Principal principal, long expiresAtMillis) {
+            this.token = token;
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public Principal getPrincipal() {
+            return principal;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+
+    private static final class CachedAccount {
+        private final UserRepository.Account account;
+        private final Principal principal;
+        private final long expiresAtMillis;
+
+        CachedAccount(UserRepository.Account account, long expiresAtMillis) {
+            this.account = account;
+            this.principal = new Principal(account.getId(), account.getUsername(), account.getRole());
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    // Constructor; accountTtlMillis of 0 reads the users table on every login
+    public SessionManager(long idleTimeoutMillis, long accountTtlMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.accountTtlMillis = accountTtlMillis;
+    }
+
+    // Check the credentials and open a session, or return null if they do not match
+    public Session login(Connection conn, String username, String password) throws SQLException {
+        long now = System.currentTimeMillis();
+        CachedAccount cached = accounts.get(username);
+        if (cached != null && cached.expiresAtMillis > now) {
+            // The cached hash decides until it expires: a wrong password costs one hash, the same as a right one.
+            // Only users edited outside the app wait up to the account TTL for the change to be seen.
+            if (!PasswordHasher.verify(password, cached.account.getPasswordHash())) {
+                return null;
+            }
+        } else {
+            // Not cached or expired: the database decides
+            UserRepository.Account account = userRepository.findAccount(conn, username);
+            if (account == null) {
+                PasswordHasher.verify(password, UNKNOWN_USER_HASH);
+            }
+            if (account == null || !PasswordHasher.verify(password, account.getPasswordHash())) {
+                accounts.remove(username);
+                return null;
+            }
+            if (PasswordHasher.needsRehash(account.getPasswordHash())) {
+                String upgraded = PasswordHasher.hash(password);
+                userRepository.updatePassword(conn, account.getId(), upgraded);
+                account = new UserRepository.Account(account.getId(), account.getUsername(), upgraded, account.getRole());
+            }
+            cached = new CachedAccount(account, now + accountTtlMillis);
+            if (accountTtlMillis > 0) {
+                accounts.put(username, cached);
+            }
+        }
+        purgeExpired(now);
+        Session session = new Session(newToken(), cached.principal, now + idleTimeoutMillis);
+        sessions.put(session.token, session);
+        return session;
+    }
+
+    // The live session for a token, extending its idle timeout; null if unknown or expired
+    public Session get(String token) {
+        Session session = token != null ? sessions.get(token) : null;
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.expiresAtMillis <= now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.expiresAtMillis = now + idleTimeoutMillis;
+        return session;
+    }
+
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    // Drop a user's cached account and end their sessions, after the user is deleted or changed
+    public void forgetUser(String username) {
+        accounts.values().removeIf(cached -> cached.account.getUsername().equalsIgnoreCase(username));
+        sessions.values().removeIf(session -> session.principal.getUsername().equalsIgnoreCase(username));
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    private void purgeExpired(long now) {
+        sessions.values().removeIf(session -> session.expiresAtMillis <= now);
+        accounts.values().removeIf(cached -> cached.expiresAtMillis <= now);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,61 @@
+import java.sql.*;
+
+public class SettingsRepository {
+    private static final String LOAD = "SELECT cafe_name, gst_rate, currency FROM settings WHERE id = 1";
+    private static final String UPDATE = "UPDATE settings SET cafe_name = ?, gst_rate = ?, currency = ? WHERE id = 1";
+    private static final String INSERT = "INSERT INTO settings (id, cafe_name, gst_rate, currency) VALUES (1, ?, ?, ?)";
+
+    // The single settings row
+    public static final class Settings {
+        private final String cafeName;
+        private final double gstRate;
+        private final String currency;
+
+        public Settings(String cafeName, double gstRate, String currency) {
+            this.cafeName = cafeName;
+            this.gstRate = gstRate;
+            this.currency = currency;
+        }
+
+        public String getCafeName() {
+            return cafeName;
+        }
+
+        public double getGstRate() {
+            return gstRate;
+        }
+
+        public String getCurrency() {
+            return currency;
+        }
+    }
+
+    // Current settings, or null if the row is missing
+    public Settings load(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(LOAD);
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                return new Settings(rs.getString("cafe_name"), rs.getDouble("gst_rate"), rs.getString("currency"));
+            }
+            return null;
+        }
+    }
+
+    // Update the settings row, creating it if it is missing
+    public void save(Connection conn, Settings settings) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE)) {
+            ps.setString(1, settings.cafeName);
+            ps.setDouble(2, settings.gstRate);
+            ps.setString(3, settings.currency);
+            if (ps.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            ps.setString(1, settings.cafeName);
+            ps.setDouble(2, settings.gstRate);
+            ps.setString(3, settings.currency);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The settings row shared by every module. Readers take the current snapshot with one volatile
+// read and never touch the database; writers save through SettingsRepository, publish a new
+// snapshot with the next version and then tell subscribers, so billing and open panels switch
+// to the new cafe name, GST rate and currency together.
+public class SettingsService {
+    public static final String DEFAULT_CAFE_NAME = "Cafe Management System";
+    public static final String DEFAULT_CURRENCY = "Rs.";
+
+    private volatile Snapshot snapshot = new Snapshot(0, DEFAULT_CAFE_NAME, BillCalculator.DEFAULT, DEFAULT_CURRENCY);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final SettingsRepository settingsRepository = new SettingsRepository();
+
+    // Immutable view of the settings row at one version
+    public static final class Snapshot {
+        private final long version;
+        private final String cafeName;
+        private final BillCalculator calculator;
+        private final String currency;
+
+        private Snapshot(long version, String cafeName, BillCalculator calculator, String currency) {
+            this.version = version;
+            this.cafeName = cafeName;
+            this.calculator = calculator;
+            this.currency = currency;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getCafeName() {
+            return cafeName;
+        }
+
+        // Calculator for the GST rate in this snapshot
+        public BillCalculator getCalculator() {
+            return calculator;
+        }
+
+        // The rate as stored in settings.gst_rate (0.05 for 5%)
+        public double getGstRate() {
+            return calculator.getGstRate();
+        }
+
+        // Prefix for printed amounts, e.g. "Rs."
+        public String getCurrency() {
+            return currency;
+        }
+    }
+
+    // Settings as last loaded or saved; defaults until the first load
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    // Read the settings row and publish it; a missing row keeps the current values
+    public Snapshot load(Connection conn) throws SQLException {
+        SettingsRepository.Settings settings = settingsRepository.load(conn);
+        if (settings == null) {
+            return snapshot;
+        }
+        Snapshot loaded = swap(settings.getCafeName(), BillCalculator.forRate(settings.getGstRate()), settings.getCurrency());
+        notifyListeners();
+        return loaded;
+    }
+
+    // Save new settings and publish them; throws IllegalArgumentException for a rate outside 0-100%
+    public Snapshot update(Connection conn, String cafeName, double gstRate, String currency) throws SQLException {
+        BillCalculator calculator = BillCalculator.forRate(gstRate);
+        Snapshot saved;
+        // Held across the write so snapshots are published in the order the row was saved
+        synchronized (this) {
+            settingsRepository.save(conn, new SettingsRepository.Settings(cafeName, calculator.getGstRate(), currency));
+            saved = swap(cafeName, calculator, currency);
+        }
+        notifyListeners();
+        return saved;
+    }
+
+    // Subscribe to new snapshots; listeners run on the writing thread
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private synchronized Snapshot swap(String cafeName, BillCalculator calculator, String currency) {
+        snapshot = new Snapshot(snapshot.version + 1, cafeName != null ? cafeName : DEFAULT_CAFE_NAME, calculator,
+                currency != null ? currency : DEFAULT_CURRENCY);
+        return snapshot;
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
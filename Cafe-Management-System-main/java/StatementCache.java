@@ -0,0 +1,107 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Prepared statements kept open on one physical connection, keyed by SQL text and options,
+// least recently used dropped first. A statement is taken out while a caller holds it, so
+// nesting the same query on one connection prepares a second copy instead of sharing one.
+final class StatementCache {
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // An idle statement for this key, or null if one must be prepared
+    synchronized PreparedStatement take(String key) {
+        return idle.remove(key);
+    }
+
+    // Hand a statement back once its caller has closed it; it is closed for real if it cannot be reused
+    void put(String key, PreparedStatement ps) {
+        if (!reset(ps)) {
+            return;
+        }
+        List<PreparedStatement> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (capacity <= 0 || idle.containsKey(key)) {
+                evicted.add(ps);
+            } else {
+                idle.put(key, ps);
+                Iterator<Map.Entry<String, PreparedStatement>> it = idle.entrySet().iterator();
+                while (idle.size() > capacity && it.hasNext()) {
+                    evicted.add(it.next().getValue());
+                    it.remove();
+                }
+            }
+        }
+        for (PreparedStatement stale : evicted) {
+            closeQuietly(stale);
+        }
+    }
+
+    // Close every idle statement, before the connection itself is closed
+    void clear() {
+        List<PreparedStatement> all;
+        synchronized (this) {
+            all = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        for (PreparedStatement ps : all) {
+            closeQuietly(ps);
+        }
+    }
+
+    synchronized int size() {
+        return idle.size();
+    }
+
+    // Put the statement back as a fresh prepare would leave it
+    private static boolean reset(PreparedStatement ps) {
+        try {
+            if (ps.isClosed()) {
+                return false;
+            }
+            ResultSet rs = ps.getResultSet();
+            if (rs != null) {
+                rs.close();
+            }
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.clearWarnings();
+            if (ps.getFetchSize() != 0) {
+                ps.setFetchSize(0);
+            }
+            if (ps.getMaxRows() != 0) {
+                ps.setMaxRows(0);
+            }
+            if (ps.getMaxFieldSize() != 0) {
+                ps.setMaxFieldSize(0);
+            }
+            if (ps.getQueryTimeout() != 0) {
+                ps.setQueryTimeout(0);
+            }
+            if (ps.getFetchDirection() != ResultSet.FETCH_FORWARD) {
+                ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+            }
+            return true;
+        } catch (SQLException e) {
+            closeQuietly(ps);
+            return false;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            // Connection already broken, nothing to do
+        }
+    }
+}
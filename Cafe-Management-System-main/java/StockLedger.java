@@ -0,0 +1,155 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class StockLedger implements AutoCloseable {
+    private static final int STRIPES = 32;
+
+    private final MenuCatalog catalog;
+    private final long holdTimeoutMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Set<Hold> holds = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService reaper;
+
+    // Units reserved per item for the items hashed to one lock
+    private static final class Stripe {
+        private final Map<Integer, Integer> reserved = new HashMap<>();
+    }
+
+    // Stock set aside for one open order; reusable after it is settled or released
+    public static final class Hold {
+        private final Map<Integer, Integer> quantities = new HashMap<>();
+        private long lastTouched;
+
+        // Units of an item this hold has reserved
+        public synchronized int reserved(int itemId) {
+            return quantities.getOrDefault(itemId, 0);
+        }
+    }
+
+    // Constructor
+    public StockLedger(MenuCatalog catalog, long holdTimeoutMillis) {
+        this.catalog = catalog;
+        this.holdTimeoutMillis = holdTimeoutMillis;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-ledger-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, holdTimeoutMillis / 4);
+        reaper.scheduleWithFixedDelay(this::releaseExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Hold openHold() {
+        return new Hold();
+    }
+
+    // Reserve units against catalog stock less what other orders hold; no database round-trip while the catalog is current
+    public void reserve(Connection conn, Hold hold, int itemId, int quantity) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        MenuItem item = catalog.snapshot(conn).get(itemId);
+        int stock = item == null ? 0 : item.getStockQuantity();
+        Stripe stripe = stripe(itemId);
+        synchronized (stripe) {
+            int reserved = stripe.reserved.getOrDefault(itemId, 0);
+            if (stock - reserved < quantity) {
+                int available = Math.max(0, stock - reserved);
+                throw new InsufficientStockException("Insufficient stock for item ID " + itemId + ": " + available + " units available");
+            }
+            stripe.reserved.put(itemId, reserved + quantity);
+        }
+        synchronized (hold) {
+            hold.quantities.merge(itemId, quantity, Integer::sum);
+            hold.lastTouched = System.currentTimeMillis();
+            holds.add(hold);
+        }
+    }
+
+    // Top the hold up to cover every line of the order, e.g. after its reservation timed out
+    public void reserveOrder(Connection conn, Hold hold, Order order) throws SQLException {
+        for (int i = 0; i < order.getItemCount(); i++) {
+            int missing = order.getItemQuantity(i) - hold.reserved(order.getItemId(i));
+            if (missing > 0) {
+                reserve(conn, hold, order.getItemId(i), missing);
+            }
+        }
+    }
+
+    // After a commit: publish the decrements to the catalog first, then drop the reservation,
+    // so the units are never counted as free in between. before is the catalog snapshot cached before the transaction.
+    public void settle(Hold hold, MenuCatalog.Snapshot before, Map<Integer, Integer> stockChanges) {
+        catalog.applyStockChanges(before, stockChanges);
+        release(hold);
+    }
+
+    // Give back everything the hold reserved
+    public void release(Hold hold) {
+        release(hold, Long.MAX_VALUE);
+    }
+
+    // Release only if the hold was last touched before the cutoff; checked under the hold's lock
+    // so a reservation made while the reaper runs is not dropped
+    private void release(Hold hold, long touchedBefore) {
+        Map<Integer, Integer> drained;
+        synchronized (hold) {
+            if (hold.quantities.isEmpty() || hold.lastTouched >= touchedBefore) {
+                return;
+            }
+            drained = new HashMap<>(hold.quantities);
+            hold.quantities.clear();
+            holds.remove(hold);
+        }
+        for (Map.Entry<Integer, Integer> entry : drained.entrySet()) {
+            Stripe stripe = stripe(entry.getKey());
+            synchronized (stripe) {
+                int left = stripe.reserved.getOrDefault(entry.getKey(), 0) - entry.getValue();
+                if (left > 0) {
+                    stripe.reserved.put(entry.getKey(), left);
+                } else {
+                    stripe.reserved.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    // Units of an item reserved across all open orders
+    public int reservedQuantity(int itemId) {
+        Stripe stripe = stripe(itemId);
+        synchronized (stripe) {
+            return stripe.reserved.getOrDefault(itemId, 0);
+        }
+    }
+
+    // Orders being built at tills and terminals that have stock reserved
+    public int getOpenHoldCount() {
+        return holds.size();
+    }
+
+    // Release holds from orders abandoned at a till or terminal
+    private void releaseExpired() {
+        long cutoff = System.currentTimeMillis() - holdTimeoutMillis;
+        for (Hold hold : holds) {
+            release(hold, cutoff);
+        }
+    }
+
+    private Stripe stripe(int itemId) {
+        return stripes[Math.floorMod(itemId, STRIPES)];
+    }
+
+    @Override
+    public void close() {
+        reaper.shutdownNow();
+    }
+}
@@ -0,0 +1,216 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Watches stock against each item's reorder point and forecasts when items will run out.
+// Usage is an exponentially weighted rate per item, updated one inventory transaction at a time:
+// each check reads only the rows added since the previous one (a cursor on the transaction id),
+// so a check costs the same after a year of trading as after a day. Checks run on a timer and
+// straight after any stock change.
+public class StockMonitor implements AutoCloseable {
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final int PAGE_SIZE = 1000;
+    // Below this many units a day an item counts as unused and gets no forecast
+    private static final double MIN_USAGE_PER_DAY = 0.01;
+
+    private final ConnectionPool pool;
+    private final MenuCatalog catalog;
+    private final InventoryRepository inventoryRepository = new InventoryRepository();
+    private final double timeConstantMillis;
+    private final long horizonMillis;
+    private final ScheduledExecutorService checker;
+    private final AtomicBoolean checkQueued = new AtomicBoolean();
+    private final List<Consumer<List<Alert>>> listeners = new CopyOnWriteArrayList<>();
+    // Only touched on the checker thread
+    private final Map<Integer, Rate> rates = new HashMap<>();
+    private int cursor;
+    private volatile List<Alert> alerts = Collections.emptyList();
+
+    // Units used per day, decayed to atMillis
+    private static final class Rate {
+        private double perDay;
+        private long atMillis;
+
+        // Each unit adds 1 / (time constant in days) and then decays, so steady use of r units a day settles at r
+        void add(int units, long whenMillis, double timeConstantMillis) {
+            double weight = units * DAY_MILLIS / timeConstantMillis;
+            if (whenMillis >= atMillis) {
+                perDay = perDay * Math.exp((atMillis - whenMillis) / timeConstantMillis) + weight;
+                atMillis = whenMillis;
+            } else {
+                // Written late, e.g. through the inventory journal: decay it to the current point instead
+                perDay += weight * Math.exp((whenMillis - atMillis) / timeConstantMillis);
+            }
+        }
+
+        double perDayAt(long nowMillis, double timeConstantMillis) {
+            return nowMillis <= atMillis ? perDay : perDay * Math.exp((atMillis - nowMillis) / timeConstantMillis);
+        }
+    }
+
+    // An item at or below its reorder point, or forecast to run out within the horizon
+    public static final class Alert {
+        private final int itemId;
+        private final String name;
+        private final int stock;
+        private final int reorderPoint;
+        private final double usagePerDay;
+
+        Alert(int itemId, String name, int stock, int reorderPoint, double usagePerDay) {
+            this.itemId = itemId;
+            this.name = name;
+            this.stock = stock;
+            this.reorderPoint = reorderPoint;
+            this.usagePerDay = usagePerDay;
+        }
+
+        public int getItemId() {
+            return itemId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStock() {
+            return stock;
+        }
+
+        public int getReorderPoint() {
+            return reorderPoint;
+        }
+
+        public double getUsagePerDay() {
+            return usagePerDay;
+        }
+
+        public boolean isBelowReorderPoint() {
+            return stock <= reorderPoint;
+        }
+
+        // Hours until the stock is gone at the current rate, or -1 when the item has not been used lately
+        public double getHoursLeft() {
+            return usagePerDay < MIN_USAGE_PER_DAY ? -1 : Math.max(0, stock) * 24 / usagePerDay;
+        }
+
+        // e.g. "Coffee: 4 left, reorder at 10, about 6 h at current sales"
+        public String describe() {
+            StringBuilder text = new StringBuilder(name).append(": ").append(stock).append(" left, reorder at ").append(reorderPoint);
+            double hours = getHoursLeft();
+            if (hours >= 0) {
+                text.append(", about ").append(hours < 48 ? Math.round(hours) + " h" : Math.round(hours / 24) + " days").append(" at current sales");
+            }
+            return text.toString();
+        }
+    }
+
+    // Constructor; usage is averaged over roughly usageDays, and items forecast to run out within horizonHours raise alerts
+    public StockMonitor(ConnectionPool pool, MenuCatalog catalog, double usageDays, double horizonHours) {
+        this.pool = pool;
+        this.catalog = catalog;
+        this.timeConstantMillis = usageDays * DAY_MILLIS;
+        this.horizonMillis = (long) (horizonHours * 3_600_000);
+        this.checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        // Sales, manual stock updates and menu edits all pass through the catalog
+        catalog.addListener(this::requestCheck);
+    }
+
+    // Check now and then every periodMillis
+    public void start(long periodMillis) {
+        checker.scheduleWithFixedDelay(this::check, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Queue a check; requests made while one is already queued share it, so a burst of sales costs one check
+    public void requestCheck() {
+        if (checkQueued.compareAndSet(false, true)) {
+            try {
+                checker.execute(this::check);
+            } catch (RejectedExecutionException e) {
+                // Closed
+            }
+        }
+    }
+
+    // Current alerts, lowest stock first
+    public List<Alert> getAlerts() {
+        return alerts;
+    }
+
+    // Subscribe to changes in the alert list; listeners run on the monitor thread
+    public void addListener(Consumer<List<Alert>> listener) {
+        listeners.add(listener);
+    }
+
+    private void check() {
+        checkQueued.set(false);
+        try (Connection conn = pool.getConnection()) {
+            long now = System.currentTimeMillis();
+            // The first check warms up from a few time constants of history; later ones only read new rows
+            Timestamp since = new Timestamp(now - (long) (3 * timeConstantMillis));
+            List<InventoryRepository.Usage> page;
+            do {
+                page = inventoryRepository.findUsage(conn, cursor, since, PAGE_SIZE);
+                for (InventoryRepository.Usage usage : page) {
+                    rates.computeIfAbsent(usage.getItemId(), id -> new Rate()).add(usage.getQuantity(), usage.getDate().getTime(), timeConstantMillis);
+                    cursor = usage.getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            List<Alert> raised = new ArrayList<>();
+            for (MenuItem item : catalog.snapshot(conn).items()) {
+                if (!item.isAvailable()) {
+                    continue;
+                }
+                Rate rate = rates.get(item.getId());
+                Alert alert = new Alert(item.getId(), item.getName(), item.getStockQuantity(), item.getReorderPoint(),
+                        rate != null ? rate.perDayAt(now, timeConstantMillis) : 0);
+                double hours = alert.getHoursLeft();
+                if (alert.isBelowReorderPoint() || (hours >= 0 && hours * 3_600_000 <= horizonMillis)) {
+                    raised.add(alert);
+                }
+            }
+            raised.sort((a, b) -> Integer.compare(a.stock, b.stock));
+            if (!sameItemsAndStock(raised, alerts)) {
+                alerts = Collections.unmodifiableList(raised);
+                for (Consumer<List<Alert>> listener : listeners) {
+                    listener.accept(alerts);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // The next check retries from the same cursor
+            System.err.println("Stock check failed: " + e.getMessage());
+        }
+    }
+
+    // Forecasts drift every check; only a change in which items are low, or their stock, is news
+    private static boolean sameItemsAndStock(List<Alert> a, List<Alert> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).itemId != b.get(i).itemId || a.get(i).stock != b.get(i).stock) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Where the data lives. The repositories issue the same SQL against either backend;
+// the differences that SQL cannot hide are answered here.
+public interface StorageBackend {
+    StorageBackend MYSQL = new MySqlBackend();
+    StorageBackend EMBEDDED = new EmbeddedBackend();
+
+    String getName();
+
+    String getDefaultUrl();
+
+    String getDefaultUser();
+
+    int getDefaultPoolSize();
+
+    // Whether a CREATE INDEX failed only because the index is already there
+    boolean isDuplicateIndex(SQLException e);
+
+    // Fetch size that makes the driver stream a large result instead of buffering it
+    int getStreamingFetchSize();
+
+    // Backend named in the config: "mysql" or "embedded"
+    static StorageBackend forName(String name) {
+        if (MYSQL.getName().equalsIgnoreCase(name)) {
+            return MYSQL;
+        }
+        if (EMBEDDED.getName().equalsIgnoreCase(name)) {
+            return EMBEDDED;
+        }
+        throw new IllegalArgumentException("Unknown database backend '" + name + "', expected mysql or embedded");
+    }
+
+    // Backend a connection belongs to, for code that is handed a connection and nothing else
+    static StorageBackend forConnection(Connection conn) throws SQLException {
+        return conn.getMetaData().getURL().startsWith("jdbc:h2:") ? EMBEDDED : MYSQL;
+    }
+}
@@ -0,0 +1,74 @@
+import java.time.LocalDate;
+import java.util.List;
+
+public class TransactionHistoryModel extends PagedTableModel<InventoryRepository.HistoryEntry> {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"ID", "Item", "Qty", "Type", "Date"};
+
+    private final InventoryRepository inventoryRepository = new InventoryRepository();
+    private Filter filter = new Filter(null, null, null, null);
+
+    // Filter on inventory_transactions; null fields match everything
+    public static final class Filter {
+        private final Integer itemId;
+        private final String type;
+        private final LocalDate from;
+        private final LocalDate toExclusive;
+
+        public Filter(Integer itemId, String type, LocalDate from, LocalDate toExclusive) {
+            this.itemId = itemId;
+            this.type = type;
+            this.from = from;
+            this.toExclusive = toExclusive;
+        }
+    }
+
+    // Constructor
+    public TransactionHistoryModel(DbExecutor db, BusyPanel busyPanel, int pageSize) {
+        super(db, busyPanel, pageSize, "transactions");
+    }
+
+    // Drop loaded rows and start again from the newest page (EDT only)
+    public void setFilter(Filter filter) {
+        this.filter = filter;
+        reload();
+    }
+
+    // Reload from the newest row with the current filter (EDT only)
+    public void refresh() {
+        setFilter(filter);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 || column == 2 ? Integer.class : String.class;
+    }
+
+    @Override
+    protected Object valueAt(InventoryRepository.HistoryEntry row, int columnIndex) {
+        switch (columnIndex) {
+            case 0: return row.getId();
+            case 1: return row.getItemName();
+            case 2: return row.getQuantity();
+            case 3: return row.getType();
+            default: return String.valueOf(row.getDate());
+        }
+    }
+
+    // The page after the last loaded row, using a keyset on (transaction_date, id)
+    @Override
+    protected DbExecutor.SqlWork<List<InventoryRepository.HistoryEntry>> pageQuery(InventoryRepository.HistoryEntry last, int pageSize) {
+        Filter f = filter;
+        return conn -> inventoryRepository.findHistory(conn, f.itemId, f.type, f.from, f.toExclusive, last, pageSize);
+    }
+}
@@ -1,18 +1,19 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.Map;
 
 public class UserManagement {
-    private Connection conn;
-    private String currentUserRole;
+    private DbExecutor db;
+    private SessionManager sessions;
+    private final UserRepository userRepository = new UserRepository();
+    private SessionManager.Session session;
     private JFrame frame;
 
     // Constructor
-    public UserManagement(Connection conn, JFrame frame) {
-        this.conn = conn;
+    public UserManagement(DbExecutor db, SessionManager sessions, JFrame frame) {
+        this.db = db;
+        this.sessions = sessions;
         this.frame = frame;
     }
 
@@ -34,21 +35,19 @@ public class UserManagement {
         loginButton.addActionListener(e -> {
             String username = usernameField.getText();
             String password = new String(passwordField.getPassword());
-            try {
-                String query = "SELECT role FROM users WHERE username = ? AND password = ?";
-                PreparedStatement ps = conn.prepareStatement(query);
-                ps.setString(1, username);
-                ps.setString(2, hashPassword(password));
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    currentUserRole = rs.getString("role");
+            loginButton.setEnabled(false);
+            db.submit(conn -> sessions.login(conn, username, password), newSession -> {
+                loginButton.setEnabled(true);
+                if (newSession != null) {
+                    session = newSession;
                     onLoginSuccess.run();
                 } else {
                     JOptionPane.showMessageDialog(frame, "Invalid credentials");
                 }
-            } catch (SQLException ex) {
+            }, ex -> {
+                loginButton.setEnabled(true);
                 JOptionPane.showMessageDialog(frame, "Login error: " + ex.getMessage());
-            }
+            });
         });
 
         return loginPanel;
@@ -56,7 +55,7 @@ public class UserManagement {
 
     // Create user management panel (Admin only)
     public JPanel createUserManagementPanel() {
-        if (!"Admin".equals(currentUserRole)) {
+        if (!"Admin".equals(getCurrentUserRole())) {
             return new JPanel();
         }
 
@@ -68,37 +67,26 @@ public class UserManagement {
         DefaultListModel<String> userListModel = new DefaultListModel<>();
         JList<String> userList = new JList<>(userListModel);
         JButton deleteButton = new JButton("Delete User");
+        BusyPanel busyPanel = new BusyPanel();
 
         // Load users
-        try {
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT username, role FROM users");
-            while (rs.next()) {
-                userListModel.addElement(rs.getString("username") + " (" + rs.getString("role") + ")");
+        db.submit(busyPanel, "Loading users...", conn -> userRepository.findAll(conn), users -> {
+            for (Map.Entry<String, String> user : users.entrySet()) {
+                userListModel.addElement(user.getKey() + " (" + user.getValue() + ")");
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(frame, "Error loading users: " + e.getMessage());
-        }
+        }, ex -> JOptionPane.showMessageDialog(frame, "Error loading users: " + ex.getMessage()));
 
         // Add user
         addButton.addActionListener(e -> {
             String username = usernameField.getText();
             String password = new String(passwordField.getPassword());
             String role = (String) roleCombo.getSelectedItem();
-            try {
-                String query = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
-                PreparedStatement ps = conn.prepareStatement(query);
-                ps.setString(1, username);
-                ps.setString(2, hashPassword(password));
-                ps.setString(3, role);
-                ps.executeUpdate();
+            db.submit(busyPanel, "Adding user...", conn -> userRepository.insert(conn, username, PasswordHasher.hash(password), role), rows -> {
                 userListModel.addElement(username + " (" + role + ")");
                 usernameField.setText("");
                 passwordField.setText("");
                 JOptionPane.showMessageDialog(frame, "User added");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error adding user: " + ex.getMessage());
-            }
+            }, ex -> JOptionPane.showMessageDialog(frame, "Error adding user: " + ex.getMessage()));
         });
 
         // Delete user
@@ -106,16 +94,14 @@ public class UserManagement {
             String selected = userList.getSelectedValue();
             if (selected != null) {
                 String username = selected.split(" ")[0];
-                try {
-                    String query = "DELETE FROM users WHERE username = ?";
-                    PreparedStatement ps = conn.prepareStatement(query);
-                    ps.setString(1, username);
-                    ps.executeUpdate();
+                db.submit(busyPanel, "Deleting user...", conn -> {
+                    int rows = userRepository.delete(conn, username);
+                    sessions.forgetUser(username);
+                    return rows;
+                }, rows -> {
                     userListModel.removeElement(selected);
                     JOptionPane.showMessageDialog(frame, "User deleted");
-                } catch (SQLException ex) {
-                    JOptionPane.showMessageDialog(frame, "Error deleting user: " + ex.getMessage());
-                }
+                }, ex -> JOptionPane.showMessageDialog(frame, "Error deleting user: " + ex.getMessage()));
             }
         });
 
@@ -129,30 +115,22 @@ public class UserManagement {
         inputPanel.add(addButton);
         inputPanel.add(deleteButton);
 
-        panel.add(inputPanel, BorderLayout.NORTH);
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(inputPanel, BorderLayout.CENTER);
+        northPanel.add(busyPanel, BorderLayout.SOUTH);
+
+        panel.add(northPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(userList), BorderLayout.CENTER);
         return panel;
     }
 
-    // Hash password using SHA-256
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hashing error: " + e.getMessage());
-        }
-    }
-
     // Get current user role
     public String getCurrentUserRole() {
-        return currentUserRole;
+        return session != null ? session.getPrincipal().getRole() : null;
+    }
+
+    // The user logged in at this till, or null before login
+    public SessionManager.Principal getCurrentUser() {
+        return session != null ? session.getPrincipal() : null;
     }
 }
@@ -0,0 +1,89 @@
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class UserRepository {
+    private static final String FIND_ACCOUNT = "SELECT id, username, password, role FROM users WHERE username = ?";
+    private static final String FIND_ALL = "SELECT username, role FROM users";
+    private static final String INSERT = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
+    private static final String DELETE = "DELETE FROM users WHERE username = ?";
+    private static final String UPDATE_PASSWORD = "UPDATE users SET password = ? WHERE id = ?";
+
+    // One users row, with the stored password hash for verification
+    public static final class Account {
+        private final int id;
+        private final String username;
+        private final String passwordHash;
+        private final String role;
+
+        Account(int id, String username, String passwordHash, String role) {
+            this.id = id;
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.role = role;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getPasswordHash() {
+            return passwordHash;
+        }
+
+        public String getRole() {
+            return role;
+        }
+    }
+
+    // The user with this name, or null if there is none
+    public Account findAccount(Connection conn, String username) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(FIND_ACCOUNT)) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Account(rs.getInt("id"), rs.getString("username"), rs.getString("password"), rs.getString("role")) : null;
+            }
+        }
+    }
+
+    // Username to role for every user
+    public Map<String, String> findAll(Connection conn) throws SQLException {
+        Map<String, String> users = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(FIND_ALL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                users.put(rs.getString("username"), rs.getString("role"));
+            }
+        }
+        return users;
+    }
+
+    public int insert(Connection conn, String username, String passwordHash, String role) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            ps.setString(1, username);
+            ps.setString(2, passwordHash);
+            ps.setString(3, role);
+            return ps.executeUpdate();
+        }
+    }
+
+    // Replace a stored hash, e.g. after upgrading it at login
+    public int updatePassword(Connection conn, int userId, String passwordHash) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_PASSWORD)) {
+            ps.setString(1, passwordHash);
+            ps.setInt(2, userId);
+            return ps.executeUpdate();
+        }
+    }
+
+    public int delete(Connection conn, String username) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(DELETE)) {
+            ps.setString(1, username);
+            return ps.executeUpdate();
+        }
+    }
+}